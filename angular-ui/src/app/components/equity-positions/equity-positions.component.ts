@@ -1,4 +1,4 @@
-import { Component, OnInit, OnDestroy } from '@angular/core';
+import { ChangeDetectionStrategy, ChangeDetectorRef, Component, OnInit, OnDestroy } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
 import { CardModule } from 'primeng/card';
@@ -37,7 +37,8 @@ import { Transaction, Position } from '../../models/transaction.model';
   ],
   providers: [MessageService],
   templateUrl: './equity-positions.component.html',
-  styleUrls: ['./equity-positions.component.scss']
+  styleUrls: ['./equity-positions.component.scss'],
+  changeDetection: ChangeDetectionStrategy.OnPush
 })
 export class EquityPositionsComponent implements OnInit, OnDestroy {
   positions: Position[] = [];
@@ -57,7 +58,7 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
   isEditing = false;
   editingTransaction: Transaction | null = null;
 
-  displayedColumns: string[] = ['transactionId', 'tradeId', 'version', 'securityCode', 'quantity', 'action', 'side', 'actions'];
+  displayedColumns: string[] = ['transactionId', 'tradeId', 'version', 'securityCode', 'quantity', 'price', 'action', 'side', 'actions'];
 
   actionOptions = [
     { label: 'INSERT', value: 'INSERT' },
@@ -74,18 +75,21 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
 
   constructor(
     private positionService: PositionService,
-    private messageService: MessageService
+    private messageService: MessageService,
+    private changeDetector: ChangeDetectorRef
   ) {}
 
   ngOnInit(): void {
     this.subscriptions.add(
       this.positionService.positions$.subscribe(positions => {
         this.positions = positions;
+        this.changeDetector.markForCheck();
       })
     );
     this.subscriptions.add(
       this.positionService.transactions$.subscribe(transactions => {
         this.transactions = transactions;
+        this.changeDetector.markForCheck();
       })
     );
     this.checkBackendHealth();
@@ -95,15 +99,25 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
     this.subscriptions.unsubscribe();
   }
 
+  trackByPosition(index: number, position: Position): string {
+    return `${position.account}/${position.securityCode}`;
+  }
+
+  trackByTransactionId(index: number, transaction: Transaction): number {
+    return transaction.transactionId ?? -index;
+  }
+
   private checkBackendHealth(): void {
     this.positionService.checkHealth().subscribe({
       next: () => {
         this.backendStatus = 'Connected';
         this.errorMessage = '';
+        this.changeDetector.markForCheck();
       },
       error: () => {
         this.backendStatus = 'Disconnected';
         this.errorMessage = 'Backend service is not available.';
+        this.changeDetector.markForCheck();
       }
     });
   }
@@ -125,6 +139,7 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
           summary: 'Success',
           detail: 'Transaction added successfully'
         });
+        this.changeDetector.markForCheck();
       },
       error: (error) => {
         this.isLoading = false;
@@ -134,6 +149,7 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
           summary: 'Error',
           detail: error.message || 'Failed to add transaction'
         });
+        this.changeDetector.markForCheck();
       }
     });
   }
@@ -173,6 +189,7 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
           summary: 'Success',
           detail: `${transactions.length} transactions processed successfully`
         });
+        this.changeDetector.markForCheck();
       },
       error: (error) => {
         this.isLoading = false;
@@ -182,6 +199,7 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
           summary: 'Error',
           detail: error.message || 'Failed to process bulk transactions'
         });
+        this.changeDetector.markForCheck();
       }
     });
   }
@@ -193,10 +211,12 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
     this.positionService.clearAll().subscribe({
       next: () => {
         this.isLoading = false;
+        this.changeDetector.markForCheck();
       },
       error: (error) => {
         this.isLoading = false;
         this.errorMessage = `Error: ${error.message || 'Unknown error'}`;
+        this.changeDetector.markForCheck();
       }
     });
   }
@@ -208,10 +228,12 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
     this.positionService.loadSampleData().subscribe({
       next: () => {
         this.isLoading = false;
+        this.changeDetector.markForCheck();
       },
       error: (error) => {
         this.isLoading = false;
         this.errorMessage = `Error: ${error.message || 'Unknown error'}`;
+        this.changeDetector.markForCheck();
       }
     });
   }
@@ -267,6 +289,7 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
           summary: 'Success',
           detail: 'Transaction updated successfully'
         });
+        this.changeDetector.markForCheck();
       },
       error: (error) => {
         this.isLoading = false;
@@ -276,6 +299,7 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
           summary: 'Error',
           detail: error.message || 'Failed to update transaction'
         });
+        this.changeDetector.markForCheck();
       }
     });
   }
@@ -366,7 +390,8 @@ export class EquityPositionsComponent implements OnInit, OnDestroy {
           securityCode: parts[3],
           quantity: parseInt(parts[4]),
           action: parts[5] as 'INSERT' | 'UPDATE' | 'CANCEL',
-          side: parts[6] as 'BUY' | 'SELL'
+          side: parts[6] as 'BUY' | 'SELL',
+          price: parts[7] ? parseFloat(parts[7]) : undefined
         };
 
         if (this.validateTransaction(transaction)) {
@@ -2,16 +2,21 @@ export interface Transaction {
   transactionId?: number;
   tradeId: number;
   version: number;
+  account?: string;
   securityCode: string;
   quantity: number;
   action: 'INSERT' | 'UPDATE' | 'CANCEL';
   side: 'BUY' | 'SELL';
+  price?: number | null;
   isLatestVersion?: boolean;
 }
 
 export interface Position {
+  account?: string;
   securityCode: string;
   quantity: number;
+  notional?: number | null;
+  vwap?: number | null;
 }
 
 export interface Trade {
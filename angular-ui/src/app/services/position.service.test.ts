@@ -64,4 +64,47 @@ describe('PositionService', () => {
     const req3 = httpMock.expectOne('/api/transactions');
     req3.flush([]);
   });
-}); 
\ No newline at end of file
+
+  it('should keep unchanged position instances when merging a refresh', () => {
+    httpMock.expectOne('/api').flush([
+      { securityCode: 'INF', quantity: 50 },
+      { securityCode: 'REL', quantity: 60 }
+    ]);
+    httpMock.expectOne('/api/transactions').flush([]);
+    const [inf, rel] = service.getPositions();
+
+    let emissions = 0;
+    service.positions$.subscribe(() => emissions++);
+    emissions = 0;
+
+    service.getAllPositions().subscribe();
+    httpMock.expectOne('/api').flush([
+      { securityCode: 'INF', quantity: 50 },
+      { securityCode: 'REL', quantity: 75 }
+    ]);
+
+    const merged = service.getPositions();
+    expect(emissions).toBe(1);
+    expect(merged[0]).toBe(inf);
+    expect(merged[1]).not.toBe(rel);
+    expect(merged[1].quantity).toBe(75);
+  });
+
+  it('should not emit when a transaction refresh is unchanged', () => {
+    const transactions: Transaction[] = [
+      { transactionId: 1, tradeId: 1, version: 1, securityCode: 'REL', quantity: 50, action: 'INSERT', side: 'BUY', isLatestVersion: true }
+    ];
+    httpMock.expectOne('/api').flush([]);
+    httpMock.expectOne('/api/transactions').flush(transactions);
+
+    let emissions = 0;
+    service.transactions$.subscribe(() => emissions++);
+    emissions = 0;
+
+    service.getAllTransactions().subscribe();
+    httpMock.expectOne('/api/transactions').flush(transactions.map(t => ({ ...t })));
+
+    expect(emissions).toBe(0);
+    expect(service.getTransactions()).toEqual(transactions);
+  });
+});
@@ -29,7 +29,7 @@ export class PositionService {
     return this.http.post<Position[]>(`${this.API_BASE_URL}/transaction`, transaction)
       .pipe(
         tap(positions => {
-          this.positionsSubject.next(positions);
+          this.mergePositions(positions);
           this.getAllTransactions().subscribe();
         })
       );
@@ -39,7 +39,7 @@ export class PositionService {
     return this.http.post<Position[]>(`${this.API_BASE_URL}/transactions/bulk`, transactions)
       .pipe(
         tap(positions => {
-          this.positionsSubject.next(positions);
+          this.mergePositions(positions);
           this.getAllTransactions().subscribe();
         })
       );
@@ -49,7 +49,7 @@ export class PositionService {
     return this.http.post<Position[]>(`${this.API_BASE_URL}/transactions/bulk-async`, transactions)
       .pipe(
         tap(positions => {
-          this.positionsSubject.next(positions);
+          this.mergePositions(positions);
           this.getAllTransactions().subscribe();
         })
       );
@@ -58,14 +58,14 @@ export class PositionService {
   getAllPositions(): Observable<Position[]> {
     return this.http.get<Position[]>(`${this.API_BASE_URL}`)
       .pipe(
-        tap(positions => this.positionsSubject.next(positions))
+        tap(positions => this.mergePositions(positions))
       );
   }
 
   getAllTransactions(): Observable<Transaction[]> {
     return this.http.get<Transaction[]>(`${this.API_BASE_URL}/transactions`)
       .pipe(
-        tap(transactions => this.transactionsSubject.next(transactions))
+        tap(transactions => this.mergeTransactions(transactions))
       );
   }
 
@@ -83,7 +83,7 @@ export class PositionService {
     return this.http.post<Position[]>(`${this.API_BASE_URL}/load-sample-data`, {})
       .pipe(
         tap(positions => {
-          this.positionsSubject.next(positions);
+          this.mergePositions(positions);
           this.getAllTransactions().subscribe();
         })
       );
@@ -100,4 +100,61 @@ export class PositionService {
   checkHealth(): Observable<any> {
     return this.http.get(`${this.API_BASE_URL}/health`, { responseType : 'arraybuffer' });
   }
+
+  /**
+   * Merges a server snapshot into the current state. Unchanged rows keep their existing
+   * object reference, so trackBy/OnPush views only re-render rows that actually changed,
+   * and nothing is emitted when the snapshot is identical.
+   */
+  private mergePositions(incoming: Position[]): void {
+    const merged = mergeByKey(this.positionsSubject.value, incoming,
+      position => `${position.account}/${position.securityCode}`,
+      (a, b) => a.quantity === b.quantity && a.notional === b.notional && a.vwap === b.vwap);
+    if (merged) {
+      this.positionsSubject.next(merged);
+    }
+  }
+
+  private mergeTransactions(incoming: Transaction[]): void {
+    const merged = mergeByKey(this.transactionsSubject.value, incoming,
+      transaction => transaction.transactionId,
+      (a, b) => a.tradeId === b.tradeId
+        && a.version === b.version
+        && a.account === b.account
+        && a.securityCode === b.securityCode
+        && a.quantity === b.quantity
+        && a.action === b.action
+        && a.side === b.side
+        && a.price === b.price
+        && a.isLatestVersion === b.isLatestVersion);
+    if (merged) {
+      this.transactionsSubject.next(merged);
+    }
+  }
+}
+
+/**
+ * Returns the incoming rows with unchanged ones replaced by their current instances,
+ * or null when the result would be identical to the current array.
+ */
+function mergeByKey<T, K>(current: T[], incoming: T[], key: (item: T) => K | undefined,
+                          equal: (a: T, b: T) => boolean): T[] | null {
+  const currentByKey = new Map<K, T>();
+  for (const item of current) {
+    const itemKey = key(item);
+    if (itemKey !== undefined) {
+      currentByKey.set(itemKey, item);
+    }
+  }
+
+  let changed = current.length !== incoming.length;
+  const merged = incoming.map((item, index) => {
+    const itemKey = key(item);
+    const existing = itemKey === undefined ? undefined : currentByKey.get(itemKey);
+    const result = existing !== undefined && equal(existing, item) ? existing : item;
+    changed = changed || current[index] !== result;
+    return result;
+  });
+
+  return changed ? merged : null;
 } 
\ No newline at end of file
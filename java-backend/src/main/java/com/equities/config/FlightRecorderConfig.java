@@ -0,0 +1,88 @@
+package com.equities.config;
+
+import com.equities.service.PositionPipelineEvents;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * In-process Flight Recorder recording of the position pipeline events.
+ * <p>
+ * Disabled by default: the events then cost nothing beyond their row counters unless an external
+ * recording (for example {@code jcmd <pid> JFR.start}) enables them. When enabled, only the
+ * pipeline events are recorded, each with its {@code equities.jfr.threshold.*} threshold, and the
+ * recording is written to {@code equities.jfr.recording.destination} on shutdown if one is set.
+ */
+@Configuration
+@Slf4j
+public class FlightRecorderConfig {
+
+    private final boolean enabled;
+    private final Duration transactionThreshold;
+    private final Duration deltaRecalculationThreshold;
+    private final Duration fullRecalculationThreshold;
+    private final Duration positionFlushThreshold;
+    private final Duration maxAge;
+    private final String destination;
+
+    private Recording recording;
+
+    public FlightRecorderConfig(@Value("${equities.jfr.recording.enabled:false}") boolean enabled,
+                                @Value("${equities.jfr.threshold.transaction:10ms}") Duration transactionThreshold,
+                                @Value("${equities.jfr.threshold.delta-recalculation:10ms}") Duration deltaRecalculationThreshold,
+                                @Value("${equities.jfr.threshold.full-recalculation:0ms}") Duration fullRecalculationThreshold,
+                                @Value("${equities.jfr.threshold.position-flush:5ms}") Duration positionFlushThreshold,
+                                @Value("${equities.jfr.recording.max-age:1h}") Duration maxAge,
+                                @Value("${equities.jfr.recording.destination:}") String destination) {
+        this.enabled = enabled;
+        this.transactionThreshold = transactionThreshold;
+        this.deltaRecalculationThreshold = deltaRecalculationThreshold;
+        this.fullRecalculationThreshold = fullRecalculationThreshold;
+        this.positionFlushThreshold = positionFlushThreshold;
+        this.maxAge = maxAge;
+        this.destination = destination;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || recording != null) {
+            return;
+        }
+        recording = new Recording();
+        recording.setName("equities-position-pipeline");
+        recording.setMaxAge(maxAge);
+        recording.setToDisk(true);
+        recording.enable(PositionPipelineEvents.TransactionProcessed.class).withThreshold(transactionThreshold);
+        recording.enable(PositionPipelineEvents.DeltaRecalculation.class).withThreshold(deltaRecalculationThreshold);
+        recording.enable(PositionPipelineEvents.FullRecalculation.class).withThreshold(fullRecalculationThreshold);
+        recording.enable(PositionPipelineEvents.PositionFlush.class).withThreshold(positionFlushThreshold);
+        recording.start();
+        log.info("Position pipeline recording started (transaction {}, delta {}, full {}, flush {})",
+                transactionThreshold, deltaRecalculationThreshold, fullRecalculationThreshold, positionFlushThreshold);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            if (!destination.isBlank()) {
+                recording.dump(Path.of(destination));
+                log.info("Position pipeline recording written to {}", destination);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot write position pipeline recording to {}: {}", destination, e.getMessage());
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+}
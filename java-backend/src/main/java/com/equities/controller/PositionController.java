@@ -1,15 +1,36 @@
 package com.equities.controller;
 
+import com.equities.model.ExposureSummary;
 import com.equities.model.Position;
+import com.equities.model.PositionPage;
+import com.equities.model.PositionQuery;
+import com.equities.model.PositionSeries;
+import com.equities.model.PositionSnapshot;
 import com.equities.model.ProcessingState;
+import com.equities.model.ReconciliationReport;
+import com.equities.model.TradeContribution;
 import com.equities.model.Transaction;
+import com.equities.service.ExportService;
+import com.equities.service.ExposureTracker;
+import com.equities.service.IngestLimiter;
+import com.equities.service.IngestRejectedException;
 import com.equities.service.PositionCalculationService;
+import com.equities.service.PositionIndex;
+import com.equities.service.PositionReadModel;
+import com.equities.service.PositionReconciler;
+import com.equities.service.PositionSeriesRecorder;
+import com.equities.service.TradeIndex;
+import com.equities.service.TransactionArchiver;
+import com.equities.service.TransactionBatcher;
 import com.equities.service.TransactionEditException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -20,11 +41,72 @@ import java.util.List;
 public class PositionController {
 
     private final PositionCalculationService positionCalculationService;
+    private final ExposureTracker exposureTracker;
+    private final PositionIndex positionIndex;
+    private final PositionReadModel positionReadModel;
+    private final ExportService exportService;
+    private final IngestLimiter ingestLimiter;
+    private final PositionReconciler positionReconciler;
+    private final TransactionArchiver transactionArchiver;
+    private final TransactionBatcher transactionBatcher;
+    private final TradeIndex tradeIndex;
+    private final PositionSeriesRecorder positionSeriesRecorder;
 
     @GetMapping("/positions")
-    public ResponseEntity<List<Position>> getAllPositions() {
-        List<Position> positions = positionCalculationService.getAllPositions();
-        return ResponseEntity.ok(positions);
+    public ResponseEntity<List<Position>> getAllPositions(
+            @RequestParam(required = false) String account,
+            @RequestParam(required = false) List<String> securityCodes,
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) PositionQuery.Direction direction,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        if (account == null && securityCodes == null && prefix == null && from == null && to == null
+                && direction == null && page == null && size == null) {
+            PositionSnapshot snapshot = positionReadModel.current();
+            return ResponseEntity.ok()
+                    .header("X-Snapshot-Version", String.valueOf(snapshot.getVersion()))
+                    .body(snapshot.getPositions());
+        }
+
+        PositionPage result = positionIndex.query(PositionQuery.builder()
+                .account(account)
+                .securityCodes(securityCodes)
+                .prefix(prefix)
+                .from(from)
+                .to(to)
+                .direction(direction == null ? PositionQuery.Direction.ALL : direction)
+                .page(page == null ? 0 : Math.max(page, 0))
+                .size(size == null ? 0 : Math.max(size, 0))
+                .build());
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(result.getTotalElements()))
+                .body(result.getPositions());
+    }
+
+    @GetMapping("/accounts/{account}/positions")
+    public ResponseEntity<List<Position>> getAccountPositions(@PathVariable String account) {
+        return ResponseEntity.ok(positionIndex.query(PositionQuery.builder().account(account).build()).getPositions());
+    }
+
+    @GetMapping("/positions/summary")
+    public ResponseEntity<ExposureSummary> getExposureSummary(@RequestParam(required = false) Integer top) {
+        ExposureSummary summary = top == null ? exposureTracker.getSummary() : exposureTracker.getSummary(top);
+        return ResponseEntity.ok(summary);
+    }
+
+    @GetMapping("/positions/{securityCode}/trades")
+    public ResponseEntity<List<TradeContribution>> getContributingTrades(@PathVariable String securityCode) {
+        List<TradeContribution> trades = tradeIndex.tradesFor(securityCode);
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(trades.size()))
+                .body(trades);
+    }
+
+    @GetMapping("/positions/{securityCode}/series")
+    public ResponseEntity<PositionSeries> getPositionSeries(@PathVariable String securityCode) {
+        return ResponseEntity.ok(positionSeriesRecorder.seriesFor(securityCode));
     }
 
     @GetMapping("/transactions")
@@ -35,18 +117,32 @@ public class PositionController {
 
     @PostMapping("/transaction")
     public ResponseEntity<List<Position>> processTransaction(@RequestBody Transaction transaction) {
-        List<Position> positions = positionCalculationService.processTransaction(transaction);
+        List<Position> positions = ingestLimiter.execute(() -> transactionBatcher.process(transaction));
         return ResponseEntity.ok(positions);
     }
 
     @PostMapping("/transactions/bulk")
     public ResponseEntity<List<Position>> processBulkTransactions(@RequestBody List<Transaction> transactions) {
-        List<Position> positions = positionCalculationService.processBulkTransactions(transactions);
+        List<Position> positions = ingestLimiter.execute(() -> positionCalculationService.processBulkTransactions(transactions));
         return ResponseEntity.ok(positions);
     }
 
 
 
+    @GetMapping("/export/transactions")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "" + Long.MAX_VALUE) long toId) {
+        log.info("Exporting transactions with id in ({}, {}]", afterId, toId);
+        return gzipCsv("transactions.csv.gz", out -> exportService.exportTransactions(afterId, toId, out));
+    }
+
+    @GetMapping("/export/positions")
+    public ResponseEntity<StreamingResponseBody> exportPositions() {
+        log.info("Exporting positions");
+        return gzipCsv("positions.csv.gz", exportService::exportPositions);
+    }
+
     @PostMapping("/load-sample-data")
     public ResponseEntity<List<Position>> loadSampleData() {
         log.info("Loading sample data via REST API");
@@ -72,6 +168,17 @@ public class PositionController {
         return ResponseEntity.ok(state);
     }
 
+    @GetMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> getReconciliationReport() {
+        return ResponseEntity.ok(positionReconciler.getReport());
+    }
+
+    @PostMapping("/archive/compact")
+    public ResponseEntity<Long> compactTransactions() {
+        log.info("Compacting superseded transaction versions via REST API");
+        return ResponseEntity.ok(transactionArchiver.compact());
+    }
+
     @PostMapping("/force-recalculation")
     public ResponseEntity<List<Position>> forceFullRecalculation() {
         log.info("Forcing full recalculation via REST API");
@@ -79,9 +186,24 @@ public class PositionController {
         return ResponseEntity.ok(positions);
     }
 
+    private static ResponseEntity<StreamingResponseBody> gzipCsv(String fileName, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
     @ExceptionHandler(TransactionEditException.class)
     public ResponseEntity<String> handleTransactionEditException(TransactionEditException e) {
         log.warn("Transaction edit validation failed: {}", e.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
     }
-} 
\ No newline at end of file
+
+    @ExceptionHandler(IngestRejectedException.class)
+    public ResponseEntity<String> handleIngestRejectedException(IngestRejectedException e) {
+        log.warn("Ingest rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+}
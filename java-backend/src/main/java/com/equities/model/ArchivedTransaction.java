@@ -0,0 +1,65 @@
+package com.equities.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A superseded transaction version moved out of the hot transactions table by compaction.
+ * Rows keep their original id and transactionId, so history reads can merge both tables
+ * without the caller noticing where a version lives.
+ */
+@Entity
+@Table(name = "transactions_archive", indexes = {
+        @Index(name = "idx_transactions_archive_trade_id", columnList = "trade_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedTransaction {
+
+    @Id
+    private Long id;
+
+    @Column(name = "transaction_id", unique = true)
+    private Long transactionId;
+
+    @Column(name = "trade_id", nullable = false)
+    private Long tradeId;
+
+    @Column(nullable = false)
+    private Integer version;
+
+    @Column(nullable = false)
+    private String account;
+
+    @Column(name = "security_code", nullable = false)
+    private String securityCode;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Transaction.TransactionAction action;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Transaction.TransactionSide side;
+
+    @Column(precision = 19, scale = 6)
+    private BigDecimal price;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    public Transaction toTransaction() {
+        return new Transaction(id, transactionId, tradeId, version, account, securityCode, quantity, action, side, price);
+    }
+}
@@ -0,0 +1,28 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillResult {
+
+    private String file;
+
+    private long rowsLoaded;
+
+    private long loadMillis;
+
+    private long recalculationMillis;
+
+    private long rowsPerSecond;
+
+    private int positions;
+
+    /** Processing state high-water mark after the final recalculation */
+    private long lastProcessedTransactionId;
+}
@@ -0,0 +1,46 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExposureSummary {
+
+    private long grossLong;
+
+    private long grossShort;
+
+    private long netExposure;
+
+    /** Number of (account, security) positions held */
+    private int securityCount;
+
+    private int longCount;
+
+    private int shortCount;
+
+    private List<Concentration> topConcentrations;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Concentration {
+
+        private String account;
+
+        private String securityCode;
+
+        private int quantity;
+
+        /** Share of gross exposure (long + short) held in this security, between 0 and 1 */
+        private double share;
+    }
+}
@@ -1,13 +1,19 @@
 package com.equities.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
 
 @Entity
-@Table(name = "positions")
+@Table(name = "positions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_positions_account_security", columnNames = {"account", "security_code"})
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,9 +24,54 @@ public class Position {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "security_code", unique = true, nullable = false)
+    @Builder.Default
+    @Column(nullable = false)
+    private String account = Transaction.DEFAULT_ACCOUNT;
+
+    @Column(name = "security_code", nullable = false)
     private String securityCode;
 
     @Column(nullable = false)
     private Integer quantity;
+
+    /** Signed notional (price times signed quantity) of the live priced trades; null when none are priced */
+    @Column(precision = 25, scale = 6)
+    private BigDecimal notional;
+
+    /** Volume-weighted average price of the live priced trades; null when none are priced */
+    @Column(precision = 19, scale = 6)
+    private BigDecimal vwap;
+
+    /** Trades whose latest version is booked to this cell, cancelled ones included; the row goes when none are left */
+    @Builder.Default
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "trade_count", nullable = false)
+    private Integer tradeCount = 0;
+
+    /** Unsigned notional of the live priced trades, the numerator of the VWAP */
+    @JsonIgnore
+    @Column(name = "gross_notional", precision = 25, scale = 6)
+    private BigDecimal grossNotional;
+
+    /** Quantity of the live priced trades, the denominator of the VWAP */
+    @Builder.Default
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "priced_volume", nullable = false)
+    private Long pricedVolume = 0L;
+
+    /** Optimistic lock: a write based on a stale read of this row fails instead of overwriting it */
+    @Version
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion;
+
+    /**
+     * Used by JPQL constructor expressions for detached reads.
+     */
+    public Position(Long id, String account, String securityCode, Integer quantity, BigDecimal notional, BigDecimal vwap) {
+        this(id, account, securityCode, quantity, notional, vwap, 0, null, 0L, null);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * A committed change to a single (account, security) row of the position book.
+ * A null quantity means the position row was removed.
+ */
+@Value
+@AllArgsConstructor
+public class PositionChange {
+
+    String account;
+
+    String securityCode;
+
+    Integer quantity;
+
+    BigDecimal notional;
+
+    BigDecimal vwap;
+
+    /**
+     * A change to a position without priced trades.
+     */
+    public PositionChange(String account, String securityCode, Integer quantity) {
+        this(account, securityCode, quantity, null, null);
+    }
+
+    public boolean isRemoval() {
+        return quantity == null;
+    }
+
+    /**
+     * The detached position row after this change; not meaningful for removals.
+     */
+    public Position toPosition() {
+        return Position.builder()
+                .account(account)
+                .securityCode(securityCode)
+                .quantity(quantity)
+                .notional(notional)
+                .vwap(vwap)
+                .build();
+    }
+}
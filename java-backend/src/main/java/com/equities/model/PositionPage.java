@@ -0,0 +1,20 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionPage {
+
+    private List<Position> positions;
+
+    /** Number of positions matching the query across all pages */
+    private long totalElements;
+}
@@ -0,0 +1,56 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Filter and paging criteria for position reads. All criteria are optional and combine with AND.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionQuery {
+
+    /** Account whose book is read; null reads every account */
+    private String account;
+
+    /** Exact security codes to return */
+    private List<String> securityCodes;
+
+    /** Security code prefix */
+    private String prefix;
+
+    /** Lower bound of the security code range, inclusive */
+    private String from;
+
+    /** Upper bound of the security code range, exclusive */
+    private String to;
+
+    @Builder.Default
+    private Direction direction = Direction.ALL;
+
+    @Builder.Default
+    private int page = 0;
+
+    /** Page size, or 0 for no paging */
+    @Builder.Default
+    private int size = 0;
+
+    public enum Direction {
+        ALL, NON_ZERO, LONG, SHORT;
+
+        public boolean matches(int quantity) {
+            return switch (this) {
+                case ALL -> true;
+                case NON_ZERO -> quantity != 0;
+                case LONG -> quantity > 0;
+                case SHORT -> quantity < 0;
+            };
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Intraday net position of one security across all accounts, in fixed-width time buckets.
+ * Only buckets in which the position changed are listed; the position is flat between them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionSeries {
+
+    private String securityCode;
+
+    private long bucketMillis;
+
+    /** Current net quantity */
+    private long quantity;
+
+    private List<Bucket> buckets;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+
+        private Instant start;
+
+        /** Net quantity before the first change in the bucket */
+        private long open;
+
+        private long high;
+
+        private long low;
+
+        /** Net quantity after the last change in the bucket */
+        private long close;
+
+        private int changes;
+    }
+}
@@ -0,0 +1,78 @@
+package com.equities.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable, versioned copy of the committed position book, ordered by account and security code.
+ * The positions are owned by the snapshot and never attached to a persistence context; callers
+ * must treat them as read-only.
+ */
+@Value
+public class PositionSnapshot {
+
+    public static final PositionSnapshot EMPTY = new PositionSnapshot(0L, LocalDateTime.MIN, Collections.emptyNavigableMap());
+
+    /** Increases by one for every committed change published to the read model */
+    long version;
+
+    LocalDateTime publishedAt;
+
+    /** Each account's positions by security code; accounts a change did not touch share their list with earlier snapshots */
+    NavigableMap<String, List<Position>> accounts;
+
+    /** Every position, as a read-only view over the account lists */
+    List<Position> positions;
+
+    public PositionSnapshot(long version, LocalDateTime publishedAt, NavigableMap<String, List<Position>> accounts) {
+        this.version = version;
+        this.publishedAt = publishedAt;
+        this.accounts = Collections.unmodifiableNavigableMap(accounts);
+        this.positions = new BookView(accounts.values());
+    }
+
+    /** Concatenation of the account lists, indexed through each list's offset in the book */
+    private static final class BookView extends AbstractList<Position> implements RandomAccess {
+
+        private final List<List<Position>> slices;
+        private final int[] offsets;
+
+        BookView(Collection<List<Position>> accounts) {
+            slices = List.copyOf(accounts);
+            offsets = new int[slices.size() + 1];
+            for (int i = 0; i < slices.size(); i++) {
+                offsets[i + 1] = offsets[i] + slices.get(i).size();
+            }
+        }
+
+        @Override
+        public Position get(int index) {
+            Objects.checkIndex(index, size());
+            // Last slice starting at or before the index, which skips any empty slice
+            int low = 0;
+            int high = slices.size() - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (offsets[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return slices.get(low).get(index - offsets[low]);
+        }
+
+        @Override
+        public int size() {
+            return offsets[slices.size()];
+        }
+    }
+}
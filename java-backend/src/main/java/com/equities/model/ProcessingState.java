@@ -1,13 +1,17 @@
 package com.equities.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
-@Table(name = "processing_state")
+@Table(name = "processing_state", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_processing_state_key", columnNames = {"state_key"})
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,12 +22,20 @@ public class ProcessingState {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "state_key", unique = true, nullable = false)
+    @Column(name = "state_key", nullable = false)
     private String stateKey;
 
+    /** High-water mark of the transactions table row id (not the business transactionId) */
     @Column(name = "last_processed_transaction_id")
     private Long lastProcessedTransactionId;
 
     @Column(name = "last_processed_timestamp")
     private java.time.LocalDateTime lastProcessedTimestamp;
+
+    /** Optimistic lock: a write based on a stale read of this row fails instead of overwriting it */
+    @Version
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion;
 }
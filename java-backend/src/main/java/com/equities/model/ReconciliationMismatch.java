@@ -0,0 +1,39 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationMismatch {
+
+    private String account;
+
+    private String securityCode;
+
+    /** Quantity in the positions table, null when there is no row */
+    private Integer persistedQuantity;
+
+    /** Quantity recomputed from the account's trades in the security, null when no trade is booked there */
+    private Integer expectedQuantity;
+
+    private BigDecimal persistedNotional;
+
+    private BigDecimal expectedNotional;
+
+    private BigDecimal persistedVwap;
+
+    /** Traded VWAP of the live priced trades, as maintained by the calculation engine */
+    private BigDecimal expectedVwap;
+
+    private boolean repaired;
+
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,32 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReport {
+
+    private boolean running;
+
+    private boolean repairEnabled;
+
+    private long passesCompleted;
+
+    private long securitiesChecked;
+
+    private long mismatchesFound;
+
+    private long mismatchesRepaired;
+
+    /** Last security code checked in the current pass */
+    private String cursor;
+
+    private List<ReconciliationMismatch> recentMismatches;
+}
@@ -0,0 +1,38 @@
+package com.equities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A live (not cancelled) trade and what its latest version contributes to its position.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TradeContribution {
+
+    private Long tradeId;
+
+    /** Transaction id of the latest version */
+    private Long transactionId;
+
+    private Integer version;
+
+    private String account;
+
+    private String securityCode;
+
+    private Transaction.TransactionSide side;
+
+    private Integer quantity;
+
+    private BigDecimal price;
+
+    /** Signed quantity added to the position: positive for BUY, negative for SELL */
+    private int impact;
+}
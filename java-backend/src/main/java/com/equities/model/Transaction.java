@@ -1,19 +1,29 @@
 package com.equities.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_account_security", columnList = "account, security_code"),
+        @Index(name = "idx_transactions_trade_id_version", columnList = "trade_id, version")
+})
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Transaction {
 
+    /** Book used when a transaction does not name an account */
+    public static final String DEFAULT_ACCOUNT = "DEFAULT";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -27,6 +37,10 @@ public class Transaction {
     @Column(nullable = false)
     private Integer version;
 
+    @Builder.Default
+    @Column(nullable = false)
+    private String account = DEFAULT_ACCOUNT;
+
     @Column(name = "security_code", nullable = false)
     private String securityCode;
 
@@ -41,9 +55,29 @@ public class Transaction {
     @Column(nullable = false)
     private TransactionSide side;
 
+    /** Execution price; optional, unpriced trades count towards quantity but not notional or VWAP */
+    @Column(precision = 19, scale = 6)
+    private BigDecimal price;
+
     @Transient
     private Boolean isLatestVersion;
 
+    /** Optimistic lock: a write based on a stale read of this row fails instead of overwriting it */
+    @Version
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion;
+
+    /**
+     * Used by JPQL constructor expressions, so read paths get detached rows without
+     * entity snapshots or dirty checking.
+     */
+    public Transaction(Long id, Long transactionId, Long tradeId, Integer version, String account, String securityCode,
+                       Integer quantity, TransactionAction action, TransactionSide side, BigDecimal price) {
+        this(id, transactionId, tradeId, version, account, securityCode, quantity, action, side, price, null, null);
+    }
+
     public enum TransactionAction {
         INSERT, UPDATE, CANCEL
     }
@@ -0,0 +1,43 @@
+package com.equities.repository;
+
+import com.equities.model.ArchivedTransaction;
+import com.equities.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface ArchivedTransactionRepository extends JpaRepository<ArchivedTransaction, Long> {
+
+    boolean existsByTransactionId(Long transactionId);
+
+    List<ArchivedTransaction> findByTransactionIdIn(Collection<Long> transactionIds);
+
+    @Query("SELECT new com.equities.model.Transaction(a.id, a.transactionId, a.tradeId, a.version, a.account, a.securityCode, a.quantity, a.action, a.side, a.price) FROM ArchivedTransaction a ORDER BY a.id")
+    List<Transaction> findAllDetached();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.equities.model.Transaction(a.id, a.transactionId, a.tradeId, a.version, a.account, a.securityCode, a.quantity, a.action, a.side, a.price) FROM ArchivedTransaction a WHERE a.transactionId > :afterId AND a.transactionId <= :toId ORDER BY a.transactionId")
+    Stream<Transaction> streamDetachedByTransactionIdRange(@Param("afterId") Long afterId, @Param("toId") Long toId);
+
+    @Query("SELECT MAX(a.transactionId) FROM ArchivedTransaction a")
+    Optional<Long> findMaxTransactionId();
+
+    @Modifying(flushAutomatically = true)
+    @Query("INSERT INTO ArchivedTransaction (id, transactionId, tradeId, version, account, securityCode, quantity, action, side, price, archivedAt) " +
+           "SELECT t.id, t.transactionId, t.tradeId, t.version, t.account, t.securityCode, t.quantity, t.action, t.side, t.price, :archivedAt " +
+           "FROM Transaction t WHERE t.transactionId IN :transactionIds")
+    int copyFromTransactions(@Param("transactionIds") Collection<Long> transactionIds,
+                             @Param("archivedAt") LocalDateTime archivedAt);
+}
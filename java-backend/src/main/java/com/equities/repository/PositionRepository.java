@@ -1,11 +1,21 @@
 package com.equities.repository;
 
 import com.equities.model.Position;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PositionRepository extends JpaRepository<Position, Long> {
@@ -13,4 +23,30 @@ public interface PositionRepository extends JpaRepository<Position, Long> {
     Optional<Position> findBySecurityCode(String securityCode);
 
     List<Position> findAllByOrderBySecurityCodeAsc();
+
+    List<Position> findBySecurityCodeIn(Collection<String> securityCodes);
+
+    @Query("SELECT p.securityCode FROM Position p WHERE p.securityCode > :after ORDER BY p.securityCode")
+    List<String> findSecurityCodesAfter(@Param("after") String after, Pageable pageable);
+
+    List<Position> findByAccountInAndSecurityCodeIn(Collection<String> accounts, Collection<String> securityCodes);
+
+    /**
+     * Same rows as {@link #findByAccountInAndSecurityCodeIn}, locked for update in id order so
+     * two lockers cannot deadlock on each other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Position p WHERE p.account IN :accounts AND p.securityCode IN :securityCodes ORDER BY p.id")
+    List<Position> lockByAccountInAndSecurityCodeIn(@Param("accounts") Collection<String> accounts,
+                                                    @Param("securityCodes") Collection<String> securityCodes);
+
+    @Query("SELECT DISTINCT p.account FROM Position p")
+    List<String> findAllAccounts();
+
+    @Query("SELECT new com.equities.model.Position(p.id, p.account, p.securityCode, p.quantity, p.notional, p.vwap) FROM Position p ORDER BY p.account, p.securityCode")
+    List<Position> findAllDetachedOrderByAccountAndSecurityCode();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.equities.model.Position(p.id, p.account, p.securityCode, p.quantity, p.notional, p.vwap) FROM Position p ORDER BY p.account, p.securityCode")
+    Stream<Position> streamDetachedOrderByAccountAndSecurityCode();
 } 
\ No newline at end of file
@@ -1,13 +1,48 @@
 package com.equities.repository;
 
 import com.equities.model.ProcessingState;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface ProcessingStateRepository extends JpaRepository<ProcessingState, Long> {
 
-    Optional<ProcessingState> findByStateKey(String stateKey);
+    /**
+     * Highest mark over the stripes; read as a value, so it is current even when this session
+     * holds the rows as entities that a bulk {@link #advance} went past.
+     */
+    @Query("SELECT MAX(s.lastProcessedTransactionId) FROM ProcessingState s WHERE s.stateKey LIKE :prefix%")
+    Optional<Long> findMaxLastProcessedTransactionId(@Param("prefix") String prefix);
+
+    @Query("SELECT MAX(s.lastProcessedTimestamp) FROM ProcessingState s WHERE s.stateKey LIKE :prefix%")
+    Optional<LocalDateTime> findMaxLastProcessedTimestamp(@Param("prefix") String prefix);
+
+    /**
+     * Takes the row lock a position write holds on its stripe until it commits (see {@link #advance}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProcessingState s WHERE s.stateKey = :stateKey")
+    Optional<ProcessingState> lockByStateKey(@Param("stateKey") String stateKey);
+
+    /**
+     * Moves a stripe of the high-water mark forward only, bumping the row version, so concurrent writers
+     * never undo each other's progress and never fail on it. The row is updated, and so locked
+     * until the caller commits, even when the mark is already past the given id. Returns 0 when
+     * the row does not exist.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProcessingState s SET s.lastProcessedTransactionId = " +
+           "CASE WHEN s.lastProcessedTransactionId < :processedId THEN :processedId ELSE s.lastProcessedTransactionId END, " +
+           "s.lastProcessedTimestamp = :timestamp, s.rowVersion = s.rowVersion + 1 " +
+           "WHERE s.stateKey = :stateKey")
+    int advance(@Param("stateKey") String stateKey, @Param("processedId") Long processedId,
+                @Param("timestamp") LocalDateTime timestamp);
 }
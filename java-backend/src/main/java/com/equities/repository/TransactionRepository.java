@@ -1,13 +1,20 @@
 package com.equities.repository;
 
 import com.equities.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -20,8 +27,17 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     boolean existsByTransactionId(Long transactionId);
 
+    List<Transaction> findByTransactionIdIn(Collection<Long> transactionIds);
+
     void deleteByTradeId(Long tradeId);
 
+    @Query("SELECT new com.equities.model.Transaction(t.id, t.transactionId, t.tradeId, t.version, t.account, t.securityCode, t.quantity, t.action, t.side, t.price) FROM Transaction t ORDER BY t.id")
+    List<Transaction> findAllDetached();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.equities.model.Transaction(t.id, t.transactionId, t.tradeId, t.version, t.account, t.securityCode, t.quantity, t.action, t.side, t.price) FROM Transaction t WHERE t.transactionId > :afterId AND t.transactionId <= :toId ORDER BY t.transactionId")
+    Stream<Transaction> streamDetachedByTransactionIdRange(@Param("afterId") Long afterId, @Param("toId") Long toId);
+
     @Query("SELECT DISTINCT t.tradeId FROM Transaction t ORDER BY t.tradeId")
     List<Long> findAllTradeIds();
 
@@ -31,18 +47,63 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT t FROM Transaction t WHERE t.id > :lastProcessedId ORDER BY t.id")
     List<Transaction> findTransactionsAfterId(@Param("lastProcessedId") Long lastProcessedId);
 
+    long countByIdGreaterThan(Long id);
+
     @Query("SELECT MAX(t.id) FROM Transaction t")
     Optional<Long> findMaxTransactionId();
 
+    /** Highest business transactionId, as opposed to {@link #findMaxTransactionId}, which is the row id */
+    @Query("SELECT MAX(t.transactionId) FROM Transaction t")
+    Optional<Long> findMaxBusinessTransactionId();
+
     @Query("SELECT DISTINCT t.tradeId FROM Transaction t WHERE t.securityCode IN :securityCodes ORDER BY t.tradeId")
     List<Long> findTradeIdsBySecurityCodes(@Param("securityCodes") List<String> securityCodes);
 
+    @Query("SELECT DISTINCT t.securityCode FROM Transaction t")
+    List<String> findAllSecurityCodes();
+
+    @Query("SELECT DISTINCT t.account FROM Transaction t")
+    List<String> findAllAccounts();
+
+    @Query("SELECT DISTINCT t.securityCode FROM Transaction t WHERE t.securityCode > :after ORDER BY t.securityCode")
+    List<String> findSecurityCodesAfter(@Param("after") String after, Pageable pageable);
+
     @Query("SELECT t FROM Transaction t WHERE t.tradeId IN :tradeIds ORDER BY t.tradeId, t.version")
     List<Transaction> findTransactionsByTradeIds(@Param("tradeIds") List<Long> tradeIds);
 
+    /**
+     * Current versions of the given trades, read from the table even when some of them are
+     * managed in the calling transaction.
+     */
+    @Query("SELECT new com.equities.model.Transaction(t.id, t.transactionId, t.tradeId, t.version, t.account, t.securityCode, t.quantity, t.action, t.side, t.price) FROM Transaction t WHERE t.tradeId IN :tradeIds ORDER BY t.tradeId, t.version, t.id")
+    List<Transaction> findDetachedByTradeIdIn(@Param("tradeIds") Collection<Long> tradeIds);
+
     @Query("SELECT t FROM Transaction t ORDER BY t.tradeId, t.version")
     List<Transaction> findAllByOrderByTradeIdAscVersionAsc();
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.equities.model.Transaction(t.id, t.transactionId, t.tradeId, t.version, t.account, t.securityCode, t.quantity, t.action, t.side, t.price) FROM Transaction t ORDER BY t.tradeId, t.version")
+    Stream<Transaction> streamDetachedOrderByTradeIdAndVersion();
+
     @Query("SELECT t FROM Transaction t WHERE t.tradeId = :tradeId AND t.version = (SELECT MAX(t2.version) FROM Transaction t2 WHERE t2.tradeId = :tradeId)")
     Optional<Transaction> findLatestTransactionByTradeId(@Param("tradeId") Long tradeId);
-} 
\ No newline at end of file
+
+    @Query("SELECT t FROM Transaction t WHERE t.tradeId IN :tradeIds AND t.version = (SELECT MAX(t2.version) FROM Transaction t2 WHERE t2.tradeId = t.tradeId)")
+    List<Transaction> findLatestTransactionsByTradeIds(@Param("tradeIds") Collection<Long> tradeIds);
+
+    /**
+     * Versions that no longer affect positions: not the latest version of their trade, not a
+     * CANCEL (cancellation is sticky across later versions), and belonging to a trade whose
+     * versions have all been processed.
+     */
+    @Query("SELECT t.transactionId FROM Transaction t " +
+           "WHERE t.action <> com.equities.model.Transaction.TransactionAction.CANCEL " +
+           "AND t.version < (SELECT MAX(t2.version) FROM Transaction t2 WHERE t2.tradeId = t.tradeId) " +
+           "AND (SELECT MAX(t3.id) FROM Transaction t3 WHERE t3.tradeId = t.tradeId) <= :lastProcessedId " +
+           "ORDER BY t.transactionId")
+    List<Long> findSupersededTransactionIds(@Param("lastProcessedId") Long lastProcessedId, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM Transaction t WHERE t.transactionId IN :transactionIds")
+    int deleteByTransactionIdIn(@Param("transactionIds") Collection<Long> transactionIds);
+}
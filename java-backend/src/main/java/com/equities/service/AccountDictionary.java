@@ -0,0 +1,14 @@
+package com.equities.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Dense int ids for account codes.
+ */
+@Component
+public class AccountDictionary extends CodeDictionary {
+
+    public AccountDictionary() {
+        super("account");
+    }
+}
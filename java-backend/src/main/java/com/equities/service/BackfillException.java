@@ -0,0 +1,12 @@
+package com.equities.service;
+
+public class BackfillException extends RuntimeException {
+
+    public BackfillException(String message) {
+        super(message);
+    }
+
+    public BackfillException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
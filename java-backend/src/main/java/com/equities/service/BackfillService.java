@@ -0,0 +1,248 @@
+package com.equities.service;
+
+import com.equities.model.BackfillResult;
+import com.equities.model.Position;
+import com.equities.model.ProcessingState;
+import com.equities.model.Transaction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Offline backfill of trade history from a local CSV file, for seeding a new environment.
+ * <p>
+ * Rows are written with plain JDBC batch inserts, bypassing entity creation and the per-batch
+ * delta recalculation of {@link PositionCalculationService#processBulkTransactions}. Positions
+ * are rebuilt by a single full recalculation at the end, which also moves the processing state
+ * past the loaded rows.
+ * <p>
+ * The file uses the transaction export format; the header decides the column order, and the
+ * transaction_id, account and price columns are optional. Files ending in .gz are read as gzip.
+ * Each chunk commits on its own, so a failed load keeps the chunks before the failing row;
+ * those rows are picked up by the next full recalculation. The backfill runs before the
+ * service takes traffic, through {@code equities.backfill.file} at startup, ahead of the
+ * startup warm-up; it is deliberately not exposed over HTTP, as it reads a server-side path.
+ */
+@Service
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class BackfillService implements ApplicationRunner {
+
+    private static final String INSERT_SQL = "INSERT INTO transactions "
+            + "(transaction_id, trade_id, version, account, security_code, quantity, action, side, price) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String[] REQUIRED_COLUMNS = {"trade_id", "version", "security_code", "quantity", "action", "side"};
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PositionCalculationService positionCalculationService;
+    private final TransactionIdAllocator transactionIdAllocator;
+    private final TransactionTemplate writeTransaction;
+    private final int chunkSize;
+    private final String startupFile;
+
+    public BackfillService(JdbcTemplate jdbcTemplate,
+                           PositionCalculationService positionCalculationService,
+                           TransactionIdAllocator transactionIdAllocator,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${equities.backfill.chunk-size:5000}") int chunkSize,
+                           @Value("${equities.backfill.file:}") String startupFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.positionCalculationService = positionCalculationService;
+        this.transactionIdAllocator = transactionIdAllocator;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.startupFile = startupFile;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!startupFile.isBlank()) {
+            backfill(Path.of(startupFile));
+        }
+    }
+
+    /**
+     * Loads every row of the file and rebuilds positions once. Generated ids come from the same
+     * allocator as live ingest, and ids given in the file move the allocator past them.
+     *
+     * @throws BackfillException if the file cannot be read or a row is malformed
+     */
+    public synchronized BackfillResult backfill(Path file) {
+        log.info("Backfill from {} started (chunk size {})", file, chunkSize);
+        long start = System.nanoTime();
+        long rows;
+        try (BufferedReader reader = open(file)) {
+            rows = load(reader);
+        } catch (IOException e) {
+            throw new BackfillException("Cannot read backfill file " + file + ": " + e.getMessage(), e);
+        }
+        long loadNanos = System.nanoTime() - start;
+        log.info("Backfill loaded {} rows in {} ms, recalculating positions", rows, TimeUnit.NANOSECONDS.toMillis(loadNanos));
+
+        long recalculationStart = System.nanoTime();
+        List<Position> positions = positionCalculationService.forceFullRecalculation();
+        long recalculationNanos = System.nanoTime() - recalculationStart;
+        ProcessingState state = positionCalculationService.getProcessingState();
+
+        BackfillResult result = BackfillResult.builder()
+                .file(file.toString())
+                .rowsLoaded(rows)
+                .loadMillis(TimeUnit.NANOSECONDS.toMillis(loadNanos))
+                .recalculationMillis(TimeUnit.NANOSECONDS.toMillis(recalculationNanos))
+                .rowsPerSecond(loadNanos == 0 ? 0 : rows * TimeUnit.SECONDS.toNanos(1) / loadNanos)
+                .positions(positions.size())
+                .lastProcessedTransactionId(state.getLastProcessedTransactionId())
+                .build();
+        log.info("Backfill from {} completed: {}", file, result);
+        return result;
+    }
+
+    private long load(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return 0;
+        }
+        Columns columns = Columns.parse(header);
+
+        List<Object[]> chunk = new ArrayList<>(chunkSize);
+        String[] fields = new String[columns.count];
+        long rows = 0;
+        long lineNumber = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            long recordLine = lineNumber;
+            try {
+                // A quoted field with a line break continues the record on the next line
+                while (!CsvFormat.split(line, fields)) {
+                    String next = reader.readLine();
+                    if (next == null) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    lineNumber++;
+                    line = line + "\n" + next;
+                }
+                chunk.add(new Object[]{
+                        columns.transactionId < 0 ? transactionIdAllocator.next()
+                                : transactionIdAllocator.observe(Long.parseLong(fields[columns.transactionId])),
+                        Long.parseLong(fields[columns.tradeId]),
+                        Integer.parseInt(fields[columns.version]),
+                        columns.account < 0 || fields[columns.account].isEmpty()
+                                ? Transaction.DEFAULT_ACCOUNT : fields[columns.account],
+                        fields[columns.securityCode],
+                        Integer.parseInt(fields[columns.quantity]),
+                        Transaction.TransactionAction.valueOf(fields[columns.action]).name(),
+                        Transaction.TransactionSide.valueOf(fields[columns.side]).name(),
+                        columns.price < 0 || fields[columns.price].isEmpty() ? null : new BigDecimal(fields[columns.price])
+                });
+            } catch (IllegalArgumentException e) {
+                throw new BackfillException("Malformed backfill row at line " + recordLine + ": " + e.getMessage(), e);
+            }
+            if (chunk.size() == chunkSize) {
+                rows += insert(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            rows += insert(chunk);
+        }
+        return rows;
+    }
+
+    private int insert(List<Object[]> chunk) {
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Object[] row = chunk.get(i);
+                ps.setLong(1, (Long) row[0]);
+                ps.setLong(2, (Long) row[1]);
+                ps.setInt(3, (Integer) row[2]);
+                ps.setString(4, (String) row[3]);
+                ps.setString(5, (String) row[4]);
+                ps.setInt(6, (Integer) row[5]);
+                ps.setString(7, (String) row[6]);
+                ps.setString(8, (String) row[7]);
+                ps.setBigDecimal(9, (BigDecimal) row[8]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        }));
+        return chunk.size();
+    }
+
+    private static BufferedReader open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Column positions resolved from the header; -1 marks an optional column that is absent.
+     */
+    private record Columns(int count, int transactionId, int tradeId, int version, int account,
+                           int securityCode, int quantity, int action, int side, int price) {
+
+        static Columns parse(String header) {
+            List<String> names;
+            try {
+                names = CsvFormat.fields(header);
+            } catch (IllegalArgumentException e) {
+                throw new BackfillException("Malformed backfill header: " + e.getMessage(), e);
+            }
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                positions.put(names.get(i).toLowerCase(), i);
+            }
+            for (String required : REQUIRED_COLUMNS) {
+                if (!positions.containsKey(required)) {
+                    throw new BackfillException("Backfill file header is missing column " + required);
+                }
+            }
+            return new Columns(names.size(),
+                    positions.getOrDefault("transaction_id", -1),
+                    positions.get("trade_id"),
+                    positions.get("version"),
+                    positions.getOrDefault("account", -1),
+                    positions.get("security_code"),
+                    positions.get("quantity"),
+                    positions.get("action"),
+                    positions.get("side"),
+                    positions.getOrDefault("price", -1));
+        }
+    }
+}
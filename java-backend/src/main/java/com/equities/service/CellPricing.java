@@ -0,0 +1,113 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.Transaction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * Running sums over the priced live trades of one (account, security) cell, from which the
+ * position's signed notional and volume-weighted average price are derived. The sums are exact,
+ * so a trade can be taken out again by the write path without refolding the cell.
+ * <p>
+ * The VWAP is a traded VWAP: the value of every live priced trade, buys and sells alike, over
+ * their total quantity. It is not a cost basis; sells do not release the cost of earlier buys,
+ * and a flat position can still carry one.
+ */
+final class CellPricing {
+
+    static final int SCALE = 6;
+
+    private BigDecimal notional = BigDecimal.ZERO;
+    private BigDecimal grossNotional = BigDecimal.ZERO;
+    private long volume;
+
+    /**
+     * The sums stored on a position row.
+     */
+    static CellPricing of(Position position) {
+        CellPricing pricing = new CellPricing();
+        if (position.getNotional() != null) {
+            pricing.notional = position.getNotional();
+        }
+        if (position.getGrossNotional() != null) {
+            pricing.grossNotional = position.getGrossNotional();
+        }
+        pricing.volume = position.getPricedVolume() == null ? 0 : position.getPricedVolume();
+        return pricing;
+    }
+
+    /**
+     * Adds the latest version of a live trade; unpriced trades are ignored.
+     */
+    void add(Transaction latest) {
+        apply(latest, 1);
+    }
+
+    /**
+     * Takes out a trade version previously added.
+     */
+    void remove(Transaction latest) {
+        apply(latest, -1);
+    }
+
+    private void apply(Transaction latest, int sign) {
+        BigDecimal price = latest.getPrice();
+        if (price == null) {
+            return;
+        }
+        int quantity = Math.abs(latest.getQuantity());
+        BigDecimal value = price.multiply(BigDecimal.valueOf((long) sign * quantity));
+        notional = latest.getSide() == Transaction.TransactionSide.BUY ? notional.add(value) : notional.subtract(value);
+        grossNotional = grossNotional.add(value);
+        volume += (long) sign * quantity;
+    }
+
+    /** Signed notional, or null when no priced volume was added */
+    BigDecimal notional() {
+        return volume == 0 ? null : notional.setScale(SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    /** Volume-weighted average price, or null when no priced volume was added */
+    BigDecimal vwap() {
+        return volume == 0 ? null : grossNotional.divide(BigDecimal.valueOf(volume), SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Whether the row already holds these sums.
+     */
+    boolean matches(Position position) {
+        return sameAmount(position.getNotional(), notional())
+                && sameAmount(position.getVwap(), vwap())
+                && sameAmount(position.getGrossNotional(), grossNotional())
+                && Objects.equals(position.getPricedVolume(), volume);
+    }
+
+    void applyTo(Position position) {
+        position.setNotional(notional());
+        position.setVwap(vwap());
+        position.setGrossNotional(grossNotional());
+        position.setPricedVolume(volume);
+    }
+
+    private BigDecimal grossNotional() {
+        return volume == 0 ? null : grossNotional.setScale(SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    static BigDecimal notionalOf(CellPricing pricing) {
+        return pricing == null ? null : pricing.notional();
+    }
+
+    static BigDecimal vwapOf(CellPricing pricing) {
+        return pricing == null ? null : pricing.vwap();
+    }
+
+    /**
+     * Compares amounts by value, ignoring scale.
+     */
+    static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return Objects.equals(a, b) || (a != null && b != null && a.compareTo(b) == 0);
+    }
+}
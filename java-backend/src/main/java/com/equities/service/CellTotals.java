@@ -0,0 +1,79 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+
+import java.math.BigDecimal;
+
+/**
+ * Everything a position row holds for one (account, security) cell: net quantity, the number of
+ * trades booked to it and the pricing sums of its live trades. Folds start empty and add every
+ * trade; the write path starts from the row and moves only the trades it changed.
+ */
+final class CellTotals {
+
+    private int quantity;
+    private int trades;
+    private final CellPricing pricing;
+
+    CellTotals() {
+        this.pricing = new CellPricing();
+    }
+
+    private CellTotals(Position position) {
+        this.quantity = position.getQuantity();
+        this.trades = position.getTradeCount() == null ? 0 : position.getTradeCount();
+        this.pricing = CellPricing.of(position);
+    }
+
+    static CellTotals of(Position position) {
+        return new CellTotals(position);
+    }
+
+    void add(PositionFold.Effect effect) {
+        quantity += effect.impact();
+        trades++;
+        if (effect.priced() != null) {
+            pricing.add(effect.priced());
+        }
+    }
+
+    void subtract(PositionFold.Effect effect) {
+        quantity -= effect.impact();
+        trades--;
+        if (effect.priced() != null) {
+            pricing.remove(effect.priced());
+        }
+    }
+
+    /** False once every trade has left the cell; its row is then removed */
+    boolean hasTrades() {
+        return trades > 0;
+    }
+
+    int quantity() {
+        return quantity;
+    }
+
+    BigDecimal notional() {
+        return pricing.notional();
+    }
+
+    BigDecimal vwap() {
+        return pricing.vwap();
+    }
+
+    /**
+     * Whether the row already holds these totals.
+     */
+    boolean matches(Position position) {
+        return position.getQuantity() == quantity
+                && position.getTradeCount() != null && position.getTradeCount() == trades
+                && pricing.matches(position);
+    }
+
+    void applyTo(Position position) {
+        position.setQuantity(quantity);
+        position.setTradeCount(trades);
+        pricing.applyTo(position);
+    }
+}
@@ -0,0 +1,65 @@
+package com.equities.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each code a dense int id, so in-memory structures can key on primitives
+ * instead of strings. Ids are stable for the life of the process; unknown codes are assigned
+ * on first use.
+ */
+public abstract class CodeDictionary {
+
+    private final String kind;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] codes = new String[1024];
+    private int size;
+
+    protected CodeDictionary(String kind) {
+        this.kind = kind;
+    }
+
+    public int idOf(String code) {
+        Integer id = ids.get(code);
+        return id != null ? id : assign(code);
+    }
+
+    /**
+     * @return the id of a known code, or -1 if it has never been seen
+     */
+    public int findId(String code) {
+        return ids.getOrDefault(code, -1);
+    }
+
+    public String codeOf(int id) {
+        String[] snapshot = codes;
+        if (id < 0 || id >= snapshot.length || snapshot[id] == null) {
+            throw new IllegalArgumentException("Unknown " + kind + " id " + id);
+        }
+        return snapshot[id];
+    }
+
+    public void registerAll(Collection<String> codes) {
+        codes.forEach(this::idOf);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private synchronized int assign(String code) {
+        Integer existing = ids.get(code);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id == codes.length) {
+            codes = Arrays.copyOf(codes, codes.length * 2);
+        }
+        codes[id] = code.intern();
+        size++;
+        ids.put(codes[id], id);
+        return id;
+    }
+}
@@ -0,0 +1,132 @@
+package com.equities.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 fields for the CSV files the service exchanges. Account and security codes come
+ * from clients and may contain commas, quotes or line breaks, so a quoted field may span lines.
+ */
+final class CsvFormat {
+
+    private CsvFormat() {
+    }
+
+    /**
+     * Writes the value as one field, quoted when it contains a comma, a quote or a line break,
+     * with embedded quotes doubled.
+     */
+    static void writeField(Writer writer, String value) throws IOException {
+        if (!needsQuotes(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Splits a record into exactly {@code fields.length} fields, without allocating an
+     * intermediate list. Quoted fields are unquoted as written by {@link #writeField};
+     * unquoted fields are trimmed.
+     *
+     * @return false when the record ends inside a quoted field, which then continues on the next line
+     * @throws IllegalArgumentException when the record has a different number of fields or a
+     *                                  quoted field is followed by anything but a comma
+     */
+    static boolean split(String record, String[] fields) {
+        int count = scan(record, fields, null);
+        if (count < 0) {
+            return false;
+        }
+        if (count != fields.length) {
+            throw new IllegalArgumentException("expected " + fields.length + " fields, found " + count);
+        }
+        return true;
+    }
+
+    /**
+     * Splits a single-line record, such as a header, into its fields.
+     *
+     * @throws IllegalArgumentException when a quoted field is not closed on the line
+     */
+    static List<String> fields(String record) {
+        List<String> fields = new ArrayList<>();
+        if (scan(record, null, fields) < 0) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        return fields;
+    }
+
+    /**
+     * Stores the fields into the array while they fit, or into the list when there is no
+     * array, and returns how many the record has; -1 when it ends inside a quoted field.
+     */
+    private static int scan(String record, String[] array, List<String> list) {
+        int length = record.length();
+        int count = 0;
+        int i = 0;
+        while (true) {
+            while (i < length && record.charAt(i) <= ' ') {
+                i++;
+            }
+            String value;
+            if (i < length && record.charAt(i) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        return -1;
+                    }
+                    char c = record.charAt(i++);
+                    if (c != '"') {
+                        quoted.append(c);
+                    } else if (i < length && record.charAt(i) == '"') {
+                        quoted.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                for (; i < length && record.charAt(i) != ','; i++) {
+                    if (record.charAt(i) > ' ') {
+                        throw new IllegalArgumentException("unexpected '" + record.charAt(i) + "' after quoted field " + (count + 1));
+                    }
+                }
+                value = quoted.toString();
+            } else {
+                int end = record.indexOf(',', i);
+                if (end < 0) {
+                    end = length;
+                }
+                value = record.substring(i, end).trim();
+                i = end;
+            }
+            if (array != null) {
+                if (count < array.length) {
+                    array[count] = value;
+                }
+            } else {
+                list.add(value);
+            }
+            count++;
+            if (i >= length) {
+                return count;
+            }
+            i++;
+        }
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,186 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.Transaction;
+import com.equities.repository.ArchivedTransactionRepository;
+import com.equities.repository.PositionRepository;
+import com.equities.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * End-of-day export of transactions and positions as gzip-compressed CSV, with text fields
+ * quoted per RFC 4180 where needed.
+ * Rows are read through a forward-only cursor of detached projections and written
+ * straight to the output stream, so memory stays bounded whatever the table size.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final ArchivedTransactionRepository archivedTransactionRepository;
+    private final PositionRepository positionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ExportService(TransactionRepository transactionRepository,
+                         ArchivedTransactionRepository archivedTransactionRepository,
+                         PositionRepository positionRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.archivedTransactionRepository = archivedTransactionRepository;
+        this.positionRepository = positionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes transactions with afterId &lt; transactionId &lt;= toId, ordered by transactionId.
+     * Archived versions are merged in, so the export covers the full history.
+     *
+     * @return number of rows written
+     */
+    public long exportTransactions(long afterId, long toId, OutputStream out) throws IOException {
+        return export(out, "transaction_id,trade_id,version,account,security_code,quantity,action,side,price", writer -> {
+            long rows = 0;
+            try (Stream<Transaction> hot = transactionRepository.streamDetachedByTransactionIdRange(afterId, toId);
+                 Stream<Transaction> archived = archivedTransactionRepository.streamDetachedByTransactionIdRange(afterId, toId)) {
+                Iterator<Transaction> transactions = mergeByTransactionId(hot.iterator(), archived.iterator());
+                while (transactions.hasNext()) {
+                    Transaction t = transactions.next();
+                    writer.write(Long.toString(t.getTransactionId()));
+                    writer.write(',');
+                    writer.write(Long.toString(t.getTradeId()));
+                    writer.write(',');
+                    writer.write(Integer.toString(t.getVersion()));
+                    writer.write(',');
+                    CsvFormat.writeField(writer, t.getAccount());
+                    writer.write(',');
+                    CsvFormat.writeField(writer, t.getSecurityCode());
+                    writer.write(',');
+                    writer.write(Integer.toString(t.getQuantity()));
+                    writer.write(',');
+                    writer.write(t.getAction().name());
+                    writer.write(',');
+                    writer.write(t.getSide().name());
+                    writer.write(',');
+                    if (t.getPrice() != null) {
+                        writer.write(t.getPrice().toPlainString());
+                    }
+                    writer.write('\n');
+                    rows++;
+                }
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Writes the current position book, ordered by account and security code.
+     *
+     * @return number of rows written
+     */
+    public long exportPositions(OutputStream out) throws IOException {
+        return export(out, "account,security_code,quantity,notional,vwap", writer -> {
+            long rows = 0;
+            try (Stream<Position> positions = positionRepository.streamDetachedOrderByAccountAndSecurityCode()) {
+                for (Position p : (Iterable<Position>) positions::iterator) {
+                    CsvFormat.writeField(writer, p.getAccount());
+                    writer.write(',');
+                    CsvFormat.writeField(writer, p.getSecurityCode());
+                    writer.write(',');
+                    writer.write(Integer.toString(p.getQuantity()));
+                    writer.write(',');
+                    if (p.getNotional() != null) {
+                        writer.write(p.getNotional().toPlainString());
+                    }
+                    writer.write(',');
+                    if (p.getVwap() != null) {
+                        writer.write(p.getVwap().toPlainString());
+                    }
+                    writer.write('\n');
+                    rows++;
+                }
+            }
+            return rows;
+        });
+    }
+
+    private long export(OutputStream out, String header, RowWriter rowWriter) throws IOException {
+        long start = System.currentTimeMillis();
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(header);
+        writer.write('\n');
+
+        Long rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> {
+                try {
+                    return rowWriter.write(writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+        gzip.finish();
+        log.info("Exported {} rows in {} ms", rows, System.currentTimeMillis() - start);
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * Merges two cursors that are each ordered by transactionId into one ordered cursor.
+     */
+    private static Iterator<Transaction> mergeByTransactionId(Iterator<Transaction> left, Iterator<Transaction> right) {
+        return new Iterator<>() {
+            private Transaction nextLeft = left.hasNext() ? left.next() : null;
+            private Transaction nextRight = right.hasNext() ? right.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextLeft != null || nextRight != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Transaction result;
+                if (nextRight == null || (nextLeft != null && nextLeft.getTransactionId() <= nextRight.getTransactionId())) {
+                    result = nextLeft;
+                    nextLeft = left.hasNext() ? left.next() : null;
+                } else {
+                    result = nextRight;
+                    nextRight = right.hasNext() ? right.next() : null;
+                }
+                return result;
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        long write(Writer writer) throws IOException;
+    }
+}
@@ -0,0 +1,122 @@
+package com.equities.service;
+
+import com.equities.model.ExposureSummary;
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Book-level exposure aggregates maintained incrementally from committed position changes.
+ * Totals are running sums and the top-N concentrations come from an ordered index
+ * (largest absolute quantity first), so a summary never has to scan or sort the book.
+ */
+@Component
+public class ExposureTracker implements PositionChangeListener {
+
+    private static final Comparator<Holding> BY_ABSOLUTE_QUANTITY_DESC =
+            Comparator.comparingLong((Holding h) -> Math.abs((long) h.quantity())).reversed()
+                    .thenComparing(Holding::account)
+                    .thenComparing(Holding::securityCode);
+
+    private final int defaultTopN;
+
+    private final Map<Cell, Integer> quantities = new HashMap<>();
+    private final TreeSet<Holding> ranked = new TreeSet<>(BY_ABSOLUTE_QUANTITY_DESC);
+
+    private long grossLong;
+    private long grossShort;
+    private int longCount;
+    private int shortCount;
+
+    public ExposureTracker(@Value("${equities.exposure.top-n:10}") int defaultTopN) {
+        this.defaultTopN = defaultTopN;
+    }
+
+    @Override
+    public synchronized void onPositionsChanged(List<PositionChange> changes) {
+        for (PositionChange change : changes) {
+            apply(new Cell(change.getAccount(), change.getSecurityCode()), change.getQuantity());
+        }
+    }
+
+    @Override
+    public synchronized void onPositionsReset(List<Position> book) {
+        quantities.clear();
+        ranked.clear();
+        grossLong = 0;
+        grossShort = 0;
+        longCount = 0;
+        shortCount = 0;
+        for (Position position : book) {
+            apply(new Cell(position.getAccount(), position.getSecurityCode()), position.getQuantity());
+        }
+    }
+
+    public ExposureSummary getSummary() {
+        return getSummary(defaultTopN);
+    }
+
+    public synchronized ExposureSummary getSummary(int topN) {
+        long gross = grossLong + grossShort;
+        List<ExposureSummary.Concentration> top = new ArrayList<>(Math.min(Math.max(topN, 0), ranked.size()));
+        Iterator<Holding> it = ranked.iterator();
+        while (top.size() < topN && it.hasNext()) {
+            Holding holding = it.next();
+            top.add(ExposureSummary.Concentration.builder()
+                    .account(holding.account())
+                    .securityCode(holding.securityCode())
+                    .quantity(holding.quantity())
+                    .share(gross == 0 ? 0.0 : Math.abs((double) holding.quantity()) / gross)
+                    .build());
+        }
+
+        return ExposureSummary.builder()
+                .grossLong(grossLong)
+                .grossShort(grossShort)
+                .netExposure(grossLong - grossShort)
+                .securityCount(quantities.size())
+                .longCount(longCount)
+                .shortCount(shortCount)
+                .topConcentrations(top)
+                .build();
+    }
+
+    private void apply(Cell cell, Integer quantity) {
+        Integer previous = quantity == null ? quantities.remove(cell) : quantities.put(cell, quantity);
+        if (previous != null) {
+            accumulate(previous, -1);
+            ranked.remove(new Holding(cell.account(), cell.securityCode(), previous));
+        }
+        if (quantity != null) {
+            accumulate(quantity, 1);
+            if (quantity != 0) {
+                ranked.add(new Holding(cell.account(), cell.securityCode(), quantity));
+            }
+        }
+    }
+
+    private void accumulate(int quantity, int sign) {
+        if (quantity > 0) {
+            grossLong += sign * (long) quantity;
+            longCount += sign;
+        } else if (quantity < 0) {
+            grossShort += sign * -(long) quantity;
+            shortCount += sign;
+        }
+    }
+
+    private record Cell(String account, String securityCode) {
+    }
+
+    private record Holding(String account, String securityCode, int quantity) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.equities.service;
+
+import com.equities.model.ProcessingState;
+import com.equities.repository.ProcessingStateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The processing state high-water mark, partitioned into stripes by trade id, one
+ * processing_state row each. A write advances the stripes of its trades, which keeps those rows
+ * locked until it commits: two writes of the same trade run one after the other, so each reads
+ * every committed version of the trade, while writes of other trades, and so of other
+ * securities, take other stripes and run in parallel. Conflicts on the book itself are left to
+ * the position rows' version and unique key.
+ * <p>
+ * The mark reported is the highest of the stripes. Stripes are always taken in ascending order.
+ */
+@Component
+public class HighWaterMark {
+
+    public static final String STATE_KEY = "POSITION_CALCULATION";
+
+    private final ProcessingStateRepository processingStateRepository;
+    private final int stripes;
+
+    public HighWaterMark(ProcessingStateRepository processingStateRepository,
+                         @Value("${equities.write.stripes:64}") int stripes) {
+        this.processingStateRepository = processingStateRepository;
+        this.stripes = Math.max(1, stripes);
+    }
+
+    /**
+     * Advances the stripes of the given trades, holding them until the caller commits.
+     */
+    public void advance(Collection<Long> tradeIds, long processedId) {
+        TreeSet<Integer> taken = new TreeSet<>();
+        for (Long tradeId : tradeIds) {
+            taken.add(stripeOf(tradeId));
+        }
+        for (int stripe : taken) {
+            advance(stripe, processedId);
+        }
+    }
+
+    /**
+     * Advances every stripe, so no write runs until the caller commits; for rebuilding the whole book.
+     */
+    public void advanceAll(long processedId) {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            advance(stripe, processedId);
+        }
+    }
+
+    /**
+     * Locks every stripe without moving the mark, so no write runs until the caller commits.
+     */
+    public void lockAll() {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (processingStateRepository.lockByStateKey(keyOf(stripe)).isEmpty()) {
+                advance(stripe, 0L);
+            }
+        }
+    }
+
+    /**
+     * Puts every stripe back to zero, so writes after a clear find their rows in place.
+     */
+    public void clear() {
+        processingStateRepository.deleteAllInBatch();
+        LocalDateTime now = LocalDateTime.now();
+        List<ProcessingState> rows = new ArrayList<>(stripes);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            rows.add(ProcessingState.builder()
+                    .stateKey(keyOf(stripe))
+                    .lastProcessedTransactionId(0L)
+                    .lastProcessedTimestamp(now)
+                    .build());
+        }
+        processingStateRepository.saveAll(rows);
+    }
+
+    /**
+     * The mark across all stripes, with the time a write last advanced one.
+     */
+    public ProcessingState read() {
+        String prefix = STATE_KEY + "/";
+        return ProcessingState.builder()
+                .stateKey(STATE_KEY)
+                .lastProcessedTransactionId(processingStateRepository.findMaxLastProcessedTransactionId(prefix).orElse(0L))
+                .lastProcessedTimestamp(processingStateRepository.findMaxLastProcessedTimestamp(prefix).orElseGet(LocalDateTime::now))
+                .build();
+    }
+
+    int stripeOf(long tradeId) {
+        return (int) Math.floorMod(tradeId, (long) stripes);
+    }
+
+    /**
+     * Forward-only update, creating the stripe's row on the first write to a new database; two
+     * writers creating it at once collide on its unique key and the loser retries.
+     */
+    private void advance(int stripe, long processedId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (processingStateRepository.advance(keyOf(stripe), processedId, now) == 0) {
+            processingStateRepository.save(ProcessingState.builder()
+                    .stateKey(keyOf(stripe))
+                    .lastProcessedTransactionId(processedId)
+                    .lastProcessedTimestamp(now)
+                    .build());
+        }
+        PositionPipelineEvents.written(1);
+    }
+
+    private static String keyOf(int stripe) {
+        return String.format("%s/%04d", STATE_KEY, stripe);
+    }
+}
@@ -0,0 +1,148 @@
+package com.equities.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of ingest writes in flight. Requests over the limit are rejected
+ * immediately with an {@link IngestRejectedException} instead of queueing on database locks.
+ * <p>
+ * When adaptive mode is on, the limit follows observed commit latency (AIMD): it grows by one
+ * per sample while the smoothed latency is below target and shrinks multiplicatively while it is
+ * above, always staying between the configured minimum and maximum. It shrinks at most once per
+ * round trip: only a write admitted after the last decrease can decrease it again, so a burst of
+ * slow writes that were already in flight counts as one signal.
+ */
+@Component
+@Slf4j
+public class IngestLimiter {
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final boolean adaptive;
+    private final double targetLatencyMs;
+    private final long retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private volatile IntSupplier queued = () -> 0;
+    private double smoothedLatencyMs;
+    private long lastDecreaseNanos;
+
+    private final Counter rejected;
+    private final Timer commitLatency;
+
+    public IngestLimiter(@Value("${equities.ingest.max-in-flight:32}") int maxLimit,
+                         @Value("${equities.ingest.min-in-flight:2}") int minLimit,
+                         @Value("${equities.ingest.adaptive.enabled:true}") boolean adaptive,
+                         @Value("${equities.ingest.adaptive.target-latency-ms:250}") double targetLatencyMs,
+                         @Value("${equities.ingest.retry-after-seconds:1}") long retryAfterSeconds,
+                         MeterRegistry meterRegistry) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.minLimit = Math.max(1, Math.min(minLimit, this.maxLimit));
+        this.adaptive = adaptive;
+        this.targetLatencyMs = targetLatencyMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.limit = this.maxLimit;
+        this.lastDecreaseNanos = System.nanoTime();
+
+        Gauge.builder("equities.ingest.in_flight", inFlight, AtomicInteger::get)
+                .description("Ingest writes currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("equities.ingest.limit", this, IngestLimiter::getLimit)
+                .description("Current ingest in-flight limit")
+                .register(meterRegistry);
+        Gauge.builder("equities.ingest.queue.depth", this, IngestLimiter::getQueued)
+                .description("Admitted ingest writes queued before they write; 0 unless group commit is enabled")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("equities.ingest.rejected")
+                .description("Ingest writes rejected because the in-flight limit was reached")
+                .register(meterRegistry);
+        this.commitLatency = Timer.builder("equities.ingest.latency")
+                .description("Latency of admitted ingest writes, including commit")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Supplier<T> write) {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            return write.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            commitLatency.record(elapsed, TimeUnit.NANOSECONDS);
+            onLatencySample(start, elapsed / 1_000_000.0);
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Admitted writes waiting in the queue registered through {@link #reportQueue}.
+     */
+    public int getQueued() {
+        return queued.getAsInt();
+    }
+
+    /**
+     * Registers the queue admitted writes wait in before they write, for the queue depth gauge.
+     */
+    public void reportQueue(IntSupplier depth) {
+        this.queued = depth;
+    }
+
+    private void acquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                throw new IngestRejectedException(
+                        String.format("Ingest saturated: %d writes in flight (limit %d)", current, limit),
+                        retryAfterSeconds);
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+    }
+
+    private synchronized void onLatencySample(long startNanos, double latencyMs) {
+        if (!adaptive) {
+            return;
+        }
+        smoothedLatencyMs = smoothedLatencyMs == 0
+                ? latencyMs
+                : smoothedLatencyMs + LATENCY_SMOOTHING * (latencyMs - smoothedLatencyMs);
+
+        int previous = limit;
+        if (smoothedLatencyMs > targetLatencyMs) {
+            if (startNanos - lastDecreaseNanos >= 0) {
+                limit = Math.max(minLimit, (int) (previous * BACKOFF_RATIO));
+                lastDecreaseNanos = System.nanoTime();
+            }
+        } else if (previous < maxLimit) {
+            limit = previous + 1;
+        }
+        if (limit != previous) {
+            log.debug("Ingest limit {} -> {} (smoothed latency {} ms)", previous, limit, String.format("%.1f", smoothedLatencyMs));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.equities.service;
+
+public class IngestRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public IngestRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,110 @@
+package com.equities.service;
+
+import java.util.Arrays;
+
+/**
+ * Map from a packed {@link PositionKeys} cell key to an int, without boxing: open addressing
+ * with linear probing over two primitive arrays (12 bytes per slot, at most half of them in use).
+ * {@link Long#MIN_VALUE} marks a free slot and is never a packed key, as ids are not negative.
+ * Not thread-safe.
+ */
+final class LongIntMap {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntMap() {
+        keys = new long[16];
+        values = new int[16];
+        Arrays.fill(keys, FREE);
+    }
+
+    int get(long key, int missing) {
+        int slot = find(key);
+        return keys[slot] == FREE ? missing : values[slot];
+    }
+
+    /**
+     * @return the value replaced, or {@code missing} if the key was absent
+     */
+    int put(long key, int value, int missing) {
+        int slot = find(key);
+        if (keys[slot] != FREE) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return missing;
+    }
+
+    /**
+     * @return the value removed, or {@code missing} if the key was absent
+     */
+    int remove(long key, int missing) {
+        int slot = find(key);
+        if (keys[slot] == FREE) {
+            return missing;
+        }
+        int previous = values[slot];
+        // Shift later entries of the probe run back into the gap, so no lookup stops early
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = slotOf(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slotOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
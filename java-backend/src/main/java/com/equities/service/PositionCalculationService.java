@@ -1,20 +1,25 @@
 package com.equities.service;
 
+import com.equities.model.ArchivedTransaction;
 import com.equities.model.Position;
+import com.equities.model.PositionChange;
 import com.equities.model.ProcessingState;
+import com.equities.model.TradeContribution;
 import com.equities.model.Transaction;
+import com.equities.repository.ArchivedTransactionRepository;
 import com.equities.repository.PositionRepository;
-import com.equities.repository.ProcessingStateRepository;
 import com.equities.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -23,94 +28,248 @@ public class PositionCalculationService {
 
     private final TransactionRepository transactionRepository;
     private final PositionRepository positionRepository;
-    private final ProcessingStateRepository processingStateRepository;
-
-    @Transactional
+    private final HighWaterMark highWaterMark;
+    private final PositionChangePublisher positionChangePublisher;
+    private final ArchivedTransactionRepository archivedTransactionRepository;
+    private final PositionKeys positionKeys;
+    private final TradeIndex tradeIndex;
+    private final TransactionIdAllocator transactionIdAllocator;
+    private final WriteConflictRetry writeConflictRetry;
+    private final PositionReadModel positionReadModel;
+
+    /**
+     * Runs in its own transaction, retried from a fresh read if a concurrent writer changed the
+     * same position or transaction rows first. The caller's transaction object is not modified.
+     *
+     * @return the whole book after the write, see {@link #bookAfterWrite}
+     */
     public List<Position> processTransaction(Transaction transaction) {
-        log.info("Processing transaction: Trade={}, Security={}, Qty={}", 
-                transaction.getTradeId(), transaction.getSecurityCode(), transaction.getQuantity());
+        log.info("Processing transaction: Trade={}, Account={}, Security={}, Qty={}", 
+                transaction.getTradeId(), transaction.getAccount(), transaction.getSecurityCode(), transaction.getQuantity());
+        writeConflictRetry.execute("transaction", () -> applyTransaction(copyOf(transaction)));
+        return bookAfterWrite();
+    }
+
+    private void applyTransaction(Transaction transaction) {
+        normaliseAccount(transaction);
+        PositionPipelineEvents.TransactionProcessed event = new PositionPipelineEvents.TransactionProcessed();
 
         boolean isEdit = false;
-        String affectedSecurity = null;
+        Set<Long> tradeIds = new HashSet<>();
+        tradeIds.add(transaction.getTradeId());
+        Map<Long, Transaction> editedFrom = new HashMap<>();
+        Set<String> securities = new HashSet<>();
+        securities.add(transaction.getSecurityCode());
 
         // For new transactions, transactionId will be null and will be auto-generated
         if (transaction.getTransactionId() != null && transactionRepository.existsByTransactionId(transaction.getTransactionId())) {
             // Update existing transaction - validate it's the latest version
             Transaction existing = transactionRepository.findByTransactionId(transaction.getTransactionId()).orElseThrow();
+            PositionPipelineEvents.read(1);
             validateTransactionEdit(existing);
             
-            // Store the affected security for recalculation
-            affectedSecurity = existing.getSecurityCode();
+            // Keep the version as it was, so its contribution can be taken out of the book
+            editedFrom.put(existing.getId(), existing.toBuilder().build());
+            tradeIds.add(existing.getTradeId());
+            securities.add(existing.getSecurityCode());
             isEdit = true;
             
             existing.setTradeId(transaction.getTradeId());
             existing.setVersion(transaction.getVersion());
+            existing.setAccount(transaction.getAccount());
             existing.setSecurityCode(transaction.getSecurityCode());
             existing.setQuantity(transaction.getQuantity());
             existing.setAction(transaction.getAction());
             existing.setSide(transaction.getSide());
+            existing.setPrice(transaction.getPrice());
             transactionRepository.save(existing);
+            PositionPipelineEvents.written(1);
         } else {
+            if (transaction.getTransactionId() != null) {
+                // Superseded versions live in the archive and can never be edited
+                rejectArchivedEdits(archivedTransactionRepository.findByTransactionIdIn(List.of(transaction.getTransactionId())));
+            }
             // Create new transaction (transactionId will be auto-generated)
             if (transaction.getTransactionId() == null) {
-                transaction.setTransactionId(generateNextTransactionId());
+                transaction.setTransactionId(transactionIdAllocator.next());
+            } else {
+                transactionIdAllocator.observe(transaction.getTransactionId());
             }
             transactionRepository.save(transaction);
+            PositionPipelineEvents.written(1);
         }
 
-        // For edits, we need to recalculate positions for the affected security
-        if (isEdit) {
-            return recalculatePositionsForSecurity(affectedSecurity);
-        } else {
-            return recalculatePositionsDelta();
-        }
+        recalculatePositionsDelta(isEdit ? List.of() : List.of(transaction), tradeIds, editedFrom);
+        event.commit(transaction.getTradeId(), 1, isEdit, () -> securities);
     }
 
-    @Transactional
+    /**
+     * Runs in its own transaction with the same conflict retry as {@link #processTransaction},
+     * unless called inside an existing transaction.
+     *
+     * @return the whole book after the batch, as for {@link #processTransaction}
+     */
     public List<Position> processBulkTransactions(List<Transaction> transactions) {
         log.info("Processing {} transactions in bulk", transactions.size());
+        writeConflictRetry.execute("bulk", () -> applyBulkTransactions(
+                transactions.stream().map(PositionCalculationService::copyOf).toList()));
+        return bookAfterWrite();
+    }
+
+    /**
+     * Inside a caller's transaction the book is read from the database, which shows the caller's
+     * uncommitted writes. Otherwise the write has committed and the book is the read model's,
+     * once the write has reached it, so no table is read to answer.
+     */
+    private List<Position> bookAfterWrite() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return getAllPositions();
+        }
+        positionChangePublisher.awaitOwnChanges();
+        return positionReadModel.current().getPositions();
+    }
+
+    private void applyBulkTransactions(List<Transaction> transactions) {
+        transactions.forEach(this::normaliseAccount);
+        PositionPipelineEvents.TransactionProcessed event = new PositionPipelineEvents.TransactionProcessed();
+        
+        // Resolve edits of existing transactions in one query
+        Set<Long> requestedIds = transactions.stream()
+                .map(Transaction::getTransactionId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Transaction> existingById = requestedIds.isEmpty() ? Map.of() :
+                transactionRepository.findByTransactionIdIn(requestedIds).stream()
+                        .collect(Collectors.toMap(Transaction::getTransactionId, t -> t));
+        PositionPipelineEvents.read(existingById.size());
+        
+        List<Transaction> inserts = new ArrayList<>();
+        List<Transaction> edits = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getTransactionId() != null && existingById.containsKey(transaction.getTransactionId())) {
+                edits.add(transaction);
+            } else {
+                inserts.add(transaction);
+            }
+        }
+        
+        if (existingById.size() < requestedIds.size()) {
+            Set<Long> unresolvedIds = new HashSet<>(requestedIds);
+            unresolvedIds.removeAll(existingById.keySet());
+            rejectArchivedEdits(archivedTransactionRepository.findByTransactionIdIn(unresolvedIds));
+        }
+        
+        Map<Long, Transaction> editedFrom = applyBulkEdits(edits, existingById);
         
         // Generate transaction IDs for new transactions
-        Long currentMaxId = transactionRepository.findMaxTransactionId().orElse(0L);
-        for (int i = 0; i < transactions.size(); i++) {
-            Transaction transaction = transactions.get(i);
+        for (Transaction transaction : inserts) {
             if (transaction.getTransactionId() == null) {
-                transaction.setTransactionId(currentMaxId + i + 1);
+                transaction.setTransactionId(transactionIdAllocator.next());
+            } else {
+                transactionIdAllocator.observe(transaction.getTransactionId());
             }
         }
         
-        transactionRepository.saveAll(transactions);
-        return recalculatePositionsDelta();
+        transactionRepository.saveAll(inserts);
+        PositionPipelineEvents.written(inserts.size());
+        Set<Long> tradeIds = new HashSet<>();
+        transactions.forEach(transaction -> tradeIds.add(transaction.getTradeId()));
+        editedFrom.values().forEach(previous -> tradeIds.add(previous.getTradeId()));
+        recalculatePositionsDelta(inserts, tradeIds, editedFrom);
+        event.commit(-1, transactions.size(), !edits.isEmpty(),
+                () -> transactions.stream().map(Transaction::getSecurityCode).collect(Collectors.toSet()));
     }
 
+    /**
+     * Validates all edits against the latest version of their trades, loaded in a single query,
+     * then applies them. Returns the edited versions as they were before the batch, by row id.
+     */
+    private Map<Long, Transaction> applyBulkEdits(List<Transaction> edits, Map<Long, Transaction> existingById) {
+        if (edits.isEmpty()) {
+            return Map.of();
+        }
+        
+        Set<Long> tradeIds = edits.stream()
+                .map(edit -> existingById.get(edit.getTransactionId()).getTradeId())
+                .collect(Collectors.toSet());
+        Map<Long, Transaction> latestByTrade = transactionRepository.findLatestTransactionsByTradeIds(tradeIds).stream()
+                .collect(Collectors.toMap(Transaction::getTradeId, t -> t, (a, b) -> a));
+        
+        for (Transaction edit : edits) {
+            Transaction existing = existingById.get(edit.getTransactionId());
+            validateTransactionEdit(existing, latestByTrade.get(existing.getTradeId()));
+        }
+        
+        Map<Long, Transaction> editedFrom = new HashMap<>();
+        List<Transaction> updated = new ArrayList<>();
+        for (Transaction edit : edits) {
+            Transaction existing = existingById.get(edit.getTransactionId());
+            editedFrom.putIfAbsent(existing.getId(), existing.toBuilder().build());
+            
+            existing.setTradeId(edit.getTradeId());
+            existing.setVersion(edit.getVersion());
+            existing.setAccount(edit.getAccount());
+            existing.setSecurityCode(edit.getSecurityCode());
+            existing.setQuantity(edit.getQuantity());
+            existing.setAction(edit.getAction());
+            existing.setSide(edit.getSide());
+            existing.setPrice(edit.getPrice());
+            updated.add(existing);
+        }
+        transactionRepository.saveAll(updated);
+        PositionPipelineEvents.written(updated.size());
+        
+        log.info("Applied {} edits in bulk to {} transactions", edits.size(), editedFrom.size());
+        return editedFrom;
+    }
+
+    /**
+     * Reads the positions table, including changes not yet committed by the calling transaction.
+     * API reads are served from {@link PositionReadModel} instead.
+     */
+    @Transactional(readOnly = true)
     public List<Position> getAllPositions() {
-        return positionRepository.findAllByOrderBySecurityCodeAsc();
+        List<Position> positions = positionRepository.findAllDetachedOrderByAccountAndSecurityCode();
+        PositionPipelineEvents.read(positions.size());
+        return positions;
     }
 
+    @Transactional(readOnly = true)
     public List<Transaction> getAllTransactions() {
-        List<Transaction> transactions = transactionRepository.findAll();
+        List<Transaction> transactions = new ArrayList<>(transactionRepository.findAllDetached());
+        List<Transaction> archived = archivedTransactionRepository.findAllDetached();
+        if (!archived.isEmpty()) {
+            transactions.addAll(archived);
+            transactions.sort(Comparator.comparing(Transaction::getId));
+        }
         return populateLatestVersionFlags(transactions);
     }
 
     @Transactional
     public void clearAllData() {
-        positionRepository.deleteAll();
-        transactionRepository.deleteAll();
-        processingStateRepository.deleteAll();
+        positionRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+        archivedTransactionRepository.deleteAllInBatch();
+        highWaterMark.clear();
+        positionChangePublisher.publishReset(List.of());
+        positionChangePublisher.afterCommit(() -> tradeIndex.reset(List.of()));
+        // Writes later in this transaction number from the cleared tables; once it ends, commit or
+        // rollback, the next write reads the maximum again
+        transactionIdAllocator.reset();
+        positionChangePublisher.afterCompletion(transactionIdAllocator::reset);
     }
 
-    @Transactional
+    /**
+     * Retried like a write if a concurrent writer changes a position or the processing state
+     * while the book is rebuilt.
+     */
     public List<Position> forceFullRecalculation() {
-        return recalculateAllPositions();
+        return writeConflictRetry.execute("full-recalculation", this::recalculateAllPositions);
     }
 
+    @Transactional(readOnly = true)
     public ProcessingState getProcessingState() {
-        return processingStateRepository.findByStateKey("POSITION_CALCULATION")
-                .orElse(ProcessingState.builder()
-                        .stateKey("POSITION_CALCULATION")
-                        .lastProcessedTransactionId(0L)
-                        .lastProcessedTimestamp(LocalDateTime.now())
-                        .build());
+        return highWaterMark.read();
     }
 
     @Transactional
@@ -129,94 +288,145 @@ public class PositionCalculationService {
         return processBulkTransactions(sampleTransactions);
     }
 
-    private List<Position> recalculatePositionsDelta() {
-        Long lastProcessedId = getLastProcessedTransactionId();
-        List<Transaction> newTransactions = transactionRepository.findTransactionsAfterId(lastProcessedId);
-        
-        if (newTransactions.isEmpty()) {
-            return getAllPositions();
+    /**
+     * Moves the contribution of every trade this write inserted or edited from its state before
+     * the write to its state after it, on the position rows of the cells involved. No other trade
+     * is read, so a write costs the versions of its own trades, however many trades share their
+     * cells; each write moves the processing state past its own rows.
+     * <p>
+     * Writers of the same trade need not share a cell, e.g. two first versions booked to different
+     * securities, so each write first takes the {@link HighWaterMark} stripes of its trades, after
+     * its transaction rows and until it commits; the versions it then reads are all it has to
+     * account for. Writers of other trades run in parallel and meet only on position rows, whose
+     * version and unique key turn a concurrent change into a retry.
+     */
+    private void recalculatePositionsDelta(List<Transaction> newTransactions, Set<Long> tradeIds,
+                                                     Map<Long, Transaction> editedFrom) {
+        PositionPipelineEvents.DeltaRecalculation event = new PositionPipelineEvents.DeltaRecalculation();
+        
+        if (tradeIds.isEmpty()) {
+            event.commit(0, 0, Set::of);
+            return;
         }
         
-        // Get affected securities from new transactions
-        Set<String> affectedSecurities = new HashSet<>();
-        for (Transaction tx : newTransactions) {
-            affectedSecurities.add(tx.getSecurityCode());
+        long maxInsertedId = newTransactions.stream().mapToLong(Transaction::getId).max().orElse(0L);
+        highWaterMark.advance(tradeIds, maxInsertedId);
+        List<Transaction> versions = transactionRepository.findDetachedByTradeIdIn(tradeIds);
+        PositionPipelineEvents.read(versions.size());
+        Set<Long> insertedIds = newTransactions.stream().map(Transaction::getId).collect(Collectors.toSet());
+        List<TradeChange> changes = tradeChanges(versions, insertedIds, editedFrom);
+        Set<Long> cells = cellsOf(changes);
+        Map<Long, Position> rows = readPositions(cells);
+        updatePositionsInDatabase(changes, rows);
+        List<TradeContribution> liveTrades = changes.stream().map(TradeChange::live).filter(Objects::nonNull).toList();
+        Set<Long> changedTradeIds = Set.copyOf(tradeIds);
+        positionChangePublisher.afterCommit(() -> tradeIndex.refresh(changedTradeIds, liveTrades));
+        event.commit(newTransactions.size(), cells.size(), () -> securityCodesOf(cells));
+    }
+
+    /**
+     * Each trade's effect on the book before and after this write. The versions read include the
+     * write's own changes; the state before it drops the inserted versions and puts the edited
+     * ones back as they were.
+     */
+    private List<TradeChange> tradeChanges(List<Transaction> versions, Set<Long> insertedIds, Map<Long, Transaction> editedFrom) {
+        Map<Long, List<Transaction>> before = new HashMap<>();
+        for (Transaction previous : editedFrom.values()) {
+            before.computeIfAbsent(previous.getTradeId(), tradeId -> new ArrayList<>()).add(previous);
         }
         
-        // Get current positions and reset affected securities
-        Map<String, Integer> currentPositions = getAllPositions().stream()
-                .collect(Collectors.toMap(Position::getSecurityCode, Position::getQuantity));
-        
-        for (String securityCode : affectedSecurities) {
-            currentPositions.put(securityCode, 0);
+        List<TradeChange> changes = new ArrayList<>();
+        PositionFold.forEachTrade(versions.iterator(), after -> {
+            List<Transaction> previous = before.remove(after.get(0).getTradeId());
+            if (previous == null) {
+                previous = new ArrayList<>();
+            }
+            for (Transaction version : after) {
+                if (!insertedIds.contains(version.getId()) && !editedFrom.containsKey(version.getId())) {
+                    previous.add(version);
+                }
+            }
+            changes.add(new TradeChange(PositionFold.effectOf(previous, positionKeys),
+                    PositionFold.effectOf(after, positionKeys), PositionFold.contribution(after)));
+        });
+        // An edit that moved a trade's last version to another trade leaves it without versions
+        for (List<Transaction> previous : before.values()) {
+            changes.add(new TradeChange(PositionFold.effectOf(previous, positionKeys), null, null));
         }
-        
-        // Get only trades that affect the affected securities
-        List<Long> relevantTradeIds = transactionRepository.findTradeIdsBySecurityCodes(new ArrayList<>(affectedSecurities));
-        
-        // Get all transactions for relevant trades in one query
-        List<Transaction> relevantTransactions = transactionRepository.findTransactionsByTradeIds(relevantTradeIds);
-        
-        // Group transactions by trade ID and process each trade
-        Map<Long, List<Transaction>> transactionsByTrade = relevantTransactions.stream()
-                .collect(Collectors.groupingBy(Transaction::getTradeId));
-        
-        for (List<Transaction> tradeTransactions : transactionsByTrade.values()) {
-            processTradeForPositions(tradeTransactions, currentPositions);
+        return changes;
+    }
+
+    private static Set<Long> cellsOf(List<TradeChange> changes) {
+        Set<Long> cells = new HashSet<>();
+        for (TradeChange change : changes) {
+            if (change.before() != null) {
+                cells.add(change.before().cell());
+            }
+            if (change.after() != null) {
+                cells.add(change.after().cell());
+            }
         }
-        
-        updatePositionsInDatabase(currentPositions);
-        updateLastProcessedTransactionId(newTransactions);
-        
-        return getAllPositions();
+        return cells;
     }
 
-    private Long getLastProcessedTransactionId() {
-        return processingStateRepository.findByStateKey("POSITION_CALCULATION")
-                .map(ProcessingState::getLastProcessedTransactionId)
-                .orElse(0L);
+    /**
+     * The existing position rows of the given cells, locked for update on an escalated retry.
+     */
+    private Map<Long, Position> readPositions(Set<Long> cells) {
+        Set<String> accounts = new HashSet<>();
+        Set<String> securityCodes = new HashSet<>();
+        for (long cell : cells) {
+            accounts.add(positionKeys.accountOf(cell));
+            securityCodes.add(positionKeys.securityCodeOf(cell));
+        }
+        List<Position> positions = writeConflictRetry.isLockingAttempt()
+                ? positionRepository.lockByAccountInAndSecurityCodeIn(accounts, securityCodes)
+                : positionRepository.findByAccountInAndSecurityCodeIn(accounts, securityCodes);
+        // The query matches every account and security pair; only the requested cells are kept
+        Map<Long, Position> rows = new HashMap<>();
+        for (Position position : positions) {
+            long cell = positionKeys.keyOf(position);
+            if (cells.contains(cell)) {
+                rows.put(cell, position);
+            }
+        }
+        PositionPipelineEvents.read(rows.size());
+        return rows;
     }
 
-    private void updateLastProcessedTransactionId(List<Transaction> newTransactions) {
-        Long maxNewTransactionId = newTransactions.stream()
-                .mapToLong(Transaction::getTransactionId)
-                .max()
-                .orElse(0L);
-        
-        Long currentLastProcessedId = getLastProcessedTransactionId();
-        Long newLastProcessedId = Math.max(currentLastProcessedId, maxNewTransactionId);
-        
-        ProcessingState state = processingStateRepository.findByStateKey("POSITION_CALCULATION")
-                .orElse(ProcessingState.builder()
-                        .stateKey("POSITION_CALCULATION")
-                        .lastProcessedTransactionId(0L)
-                        .lastProcessedTimestamp(LocalDateTime.now())
-                        .build());
-        
-        state.setLastProcessedTransactionId(newLastProcessedId);
-        state.setLastProcessedTimestamp(LocalDateTime.now());
-        processingStateRepository.save(state);
+    /**
+     * Each attempt works on its own copy, so a rolled back attempt leaves no generated ids behind.
+     */
+    private static Transaction copyOf(Transaction transaction) {
+        return transaction.toBuilder().id(null).rowVersion(null).build();
     }
 
-    private Long generateNextTransactionId() {
-        Long maxTransactionId = transactionRepository.findMaxTransactionId().orElse(0L);
-        return maxTransactionId + 1;
+    private void rejectArchivedEdits(List<ArchivedTransaction> archived) {
+        for (ArchivedTransaction transaction : archived) {
+            validateTransactionEdit(transaction.toTransaction());
+        }
     }
 
     private void validateTransactionEdit(Transaction transaction) {
         Long tradeId = transaction.getTradeId();
         Optional<Transaction> latestTransaction = transactionRepository.findLatestTransactionByTradeId(tradeId);
-        
-        if (latestTransaction.isPresent()) {
-            Transaction latest = latestTransaction.get();
-            if (!latest.getTransactionId().equals(transaction.getTransactionId())) {
-                throw new TransactionEditException(
-                    String.format("Cannot edit transaction %d (version %d) for trade %d. " +
-                                "Only the latest transaction version %d can be edited.",
-                                transaction.getTransactionId(), transaction.getVersion(), 
-                                tradeId, latest.getVersion())
-                );
-            }
+        validateTransactionEdit(transaction, latestTransaction.orElse(null));
+    }
+
+    private void validateTransactionEdit(Transaction transaction, Transaction latest) {
+        if (latest != null && !latest.getTransactionId().equals(transaction.getTransactionId())) {
+            throw new TransactionEditException(
+                String.format("Cannot edit transaction %d (version %d) for trade %d. " +
+                            "Only the latest transaction version %d can be edited.",
+                            transaction.getTransactionId(), transaction.getVersion(), 
+                            transaction.getTradeId(), latest.getVersion())
+            );
+        }
+    }
+
+    private void normaliseAccount(Transaction transaction) {
+        if (transaction.getAccount() == null || transaction.getAccount().isBlank()) {
+            transaction.setAccount(Transaction.DEFAULT_ACCOUNT);
         }
     }
 
@@ -253,158 +463,166 @@ public class PositionCalculationService {
         return transactions;
     }
 
-    private List<Position> recalculatePositionsForSecurity(String securityCode) {
-        // Get all trades that affect this security
-        List<Long> relevantTradeIds = transactionRepository.findTradeIdsBySecurityCodes(List.of(securityCode));
-        
-        // Get all transactions for relevant trades
-        List<Transaction> relevantTransactions = transactionRepository.findTransactionsByTradeIds(relevantTradeIds);
-        
-        // Get current positions
-        Map<String, Integer> currentPositions = getAllPositions().stream()
-                .collect(Collectors.toMap(Position::getSecurityCode, Position::getQuantity));
-        
-        // Reset the affected security
-        currentPositions.put(securityCode, 0);
-        
-        // Group transactions by trade ID and process each trade
-        Map<Long, List<Transaction>> transactionsByTrade = relevantTransactions.stream()
-                .collect(Collectors.groupingBy(Transaction::getTradeId));
-        
-        for (List<Transaction> tradeTransactions : transactionsByTrade.values()) {
-            processTradeForPositions(tradeTransactions, currentPositions);
+    private Set<String> securityCodesOf(Collection<Long> cells) {
+        Set<String> securityCodes = new HashSet<>();
+        for (long cell : cells) {
+            securityCodes.add(positionKeys.securityCodeOf(cell));
         }
-        
-        updatePositionsInDatabase(currentPositions);
-        
-        return getAllPositions();
+        return securityCodes;
     }
 
-    private void updatePositionsInDatabase(Map<String, Integer> positionMap) {
-        List<Position> existingPositions = positionRepository.findAll();
-        Map<String, Position> existingPositionMap = existingPositions.stream()
-                .collect(Collectors.toMap(Position::getSecurityCode, p -> p));
-        
-        // Update or create positions
-        for (Map.Entry<String, Integer> entry : positionMap.entrySet()) {
-            String securityCode = entry.getKey();
-            Integer quantity = entry.getValue();
-            
-            Position existingPosition = existingPositionMap.get(securityCode);
-            
-            if (existingPosition != null) {
-                existingPosition.setQuantity(quantity);
-                positionRepository.save(existingPosition);
-            } else {
-                Position newPosition = Position.builder()
-                        .securityCode(securityCode)
-                        .quantity(quantity)
-                        .build();
-                positionRepository.save(newPosition);
+    private static void addIfLive(List<TradeContribution> liveTrades, List<Transaction> tradeTransactions) {
+        TradeContribution contribution = PositionFold.contribution(tradeTransactions);
+        if (contribution != null) {
+            liveTrades.add(contribution);
+        }
+    }
+
+    /**
+     * Applies the trades' changes to the rows they were read from, with version-checked updates
+     * and deletes; a row whose totals did not change is left alone. A row is inserted for a cell
+     * that gains its first trade, colliding with a concurrent insert on its unique key, and
+     * deleted once its last trade has left.
+     */
+    private void updatePositionsInDatabase(List<TradeChange> tradeChanges, Map<Long, Position> rows) {
+        PositionPipelineEvents.PositionFlush event = new PositionPipelineEvents.PositionFlush();
+        Map<Long, CellTotals> totals = new HashMap<>();
+        for (TradeChange change : tradeChanges) {
+            if (change.before() != null) {
+                long cell = change.before().cell();
+                if (!rows.containsKey(cell)) {
+                    throw new ConcurrencyFailureException("Position " + positionKeys.accountOf(cell) + "/"
+                            + positionKeys.securityCodeOf(cell) + " was removed by a concurrent write");
+                }
+                totals.computeIfAbsent(cell, key -> CellTotals.of(rows.get(key))).subtract(change.before());
+            }
+            if (change.after() != null) {
+                totals.computeIfAbsent(change.after().cell(),
+                        key -> rows.containsKey(key) ? CellTotals.of(rows.get(key)) : new CellTotals()).add(change.after());
             }
         }
         
-        // Remove positions with zero quantity
-        for (Position existingPosition : existingPositions) {
-            if (!positionMap.containsKey(existingPosition.getSecurityCode()) || 
-                positionMap.get(existingPosition.getSecurityCode()) == 0) {
-                positionRepository.delete(existingPosition);
+        List<PositionChange> changes = new ArrayList<>();
+        List<Position> inserted = new ArrayList<>();
+        List<Position> removed = new ArrayList<>();
+        
+        // Updates are applied to managed entities and flushed together; inserts and deletes are collected
+        for (Map.Entry<Long, CellTotals> entry : totals.entrySet()) {
+            String account = positionKeys.accountOf(entry.getKey());
+            String securityCode = positionKeys.securityCodeOf(entry.getKey());
+            CellTotals cellTotals = entry.getValue();
+            Position existingPosition = rows.get(entry.getKey());
+            
+            if (existingPosition == null) {
+                Position position = Position.builder().account(account).securityCode(securityCode).build();
+                cellTotals.applyTo(position);
+                inserted.add(position);
+                changes.add(new PositionChange(account, securityCode, position.getQuantity(), position.getNotional(), position.getVwap()));
+            } else if (!cellTotals.hasTrades()) {
+                removed.add(existingPosition);
+                changes.add(new PositionChange(account, securityCode, null));
+            } else if (!cellTotals.matches(existingPosition)) {
+                cellTotals.applyTo(existingPosition);
+                changes.add(new PositionChange(account, securityCode, existingPosition.getQuantity(),
+                        existingPosition.getNotional(), existingPosition.getVwap()));
             }
         }
+        positionRepository.saveAll(inserted);
+        positionRepository.deleteAll(removed);
+        PositionPipelineEvents.written(changes.size());
+        
+        positionChangePublisher.publish(changes);
+        event.commit(totals.size(), () -> securityCodesOf(totals.keySet()));
     }
 
     private List<Position> recalculateAllPositions() {
-        // Get all transactions in one query, ordered by trade ID and version
-        List<Transaction> allTransactions = transactionRepository.findAllByOrderByTradeIdAscVersionAsc();
-        Map<String, Integer> positionMap = new ConcurrentHashMap<>();
-        
-        // Group transactions by trade ID and process each trade
-        Map<Long, List<Transaction>> transactionsByTrade = allTransactions.stream()
-                .collect(Collectors.groupingBy(Transaction::getTradeId));
-        
-        for (List<Transaction> tradeTransactions : transactionsByTrade.values()) {
-            processTradeForPositions(tradeTransactions, positionMap);
+        // Stream all transactions in one query, ordered by trade ID and version, folding each
+        // trade as soon as its last version has been read, so memory is bounded by the book size
+        PositionPipelineEvents.FullRecalculation event = new PositionPipelineEvents.FullRecalculation();
+        // Every stripe is taken first, so no write runs during the rebuild
+        highWaterMark.advanceAll(transactionRepository.findMaxTransactionId().orElse(0L));
+        List<Position> existingPositions = positionRepository.findAll();
+        PositionPipelineEvents.read(existingPositions.size());
+        Map<Long, CellTotals> positionMap = new HashMap<>();
+        List<TradeContribution> liveTrades = new ArrayList<>();
+        try (Stream<Transaction> allTransactions = transactionRepository.streamDetachedOrderByTradeIdAndVersion()) {
+            PositionFold.forEachTrade(allTransactions.iterator(), tradeTransactions -> {
+                PositionPipelineEvents.read(tradeTransactions.size());
+                PositionFold.foldTrade(tradeTransactions, positionMap, positionKeys);
+                addIfLive(liveTrades, tradeTransactions);
+            });
         }
         
         List<Position> positions = positionMap.entrySet().stream()
-                .map(entry -> Position.builder()
-                        .securityCode(entry.getKey())
-                        .quantity(entry.getValue())
-                        .build())
-                .sorted(Comparator.comparing(Position::getSecurityCode))
+                .map(entry -> {
+                    Position position = Position.builder()
+                            .account(positionKeys.accountOf(entry.getKey()))
+                            .securityCode(positionKeys.securityCodeOf(entry.getKey()))
+                            .build();
+                    entry.getValue().applyTo(position);
+                    return position;
+                })
+                .sorted(Comparator.comparing(Position::getAccount).thenComparing(Position::getSecurityCode))
                 .toList();
         
         try {
-            List<Position> existingPositions = positionRepository.findAll();
-            Map<String, Position> existingPositionMap = existingPositions.stream()
-                    .collect(Collectors.toMap(Position::getSecurityCode, p -> p));
+            positionChangePublisher.afterCommit(() -> tradeIndex.reset(liveTrades));
+            PositionPipelineEvents.PositionFlush flush = new PositionPipelineEvents.PositionFlush();
+            Map<Long, Position> existingPositionMap = existingPositions.stream()
+                    .collect(Collectors.toMap(positionKeys::keyOf, p -> p));
             
             List<Position> savedPositions = new ArrayList<>();
+            List<Position> inserted = new ArrayList<>();
+            List<PositionChange> changes = new ArrayList<>();
+            int updated = 0;
             
             for (Position position : positions) {
-                Position existingPosition = existingPositionMap.get(position.getSecurityCode());
-                Position savedPosition;
+                Position existingPosition = existingPositionMap.get(positionKeys.keyOf(position));
                 
-                if (existingPosition != null) {
-                    existingPosition.setQuantity(position.getQuantity());
-                    savedPosition = positionRepository.save(existingPosition);
+                if (existingPosition == null) {
+                    inserted.add(position);
+                    savedPositions.add(position);
                 } else {
-                    savedPosition = positionRepository.save(position);
+                    CellTotals totals = positionMap.get(positionKeys.keyOf(position));
+                    if (!totals.matches(existingPosition)) {
+                        totals.applyTo(existingPosition);
+                        updated++;
+                    }
+                    savedPositions.add(existingPosition);
                 }
-                savedPositions.add(savedPosition);
+                changes.add(new PositionChange(position.getAccount(), position.getSecurityCode(), position.getQuantity(),
+                        position.getNotional(), position.getVwap()));
             }
+            positionRepository.saveAll(inserted);
             
+            // Rows of cells without any trade left; cells whose trades are all cancelled keep a flat row
+            List<Position> removed = new ArrayList<>();
             for (Position existingPosition : existingPositions) {
-                if (!positionMap.containsKey(existingPosition.getSecurityCode()) || 
-                    positionMap.get(existingPosition.getSecurityCode()) == 0) {
-                    positionRepository.delete(existingPosition);
+                if (!positionMap.containsKey(positionKeys.keyOf(existingPosition))) {
+                    removed.add(existingPosition);
+                    changes.add(new PositionChange(existingPosition.getAccount(), existingPosition.getSecurityCode(), null));
                 }
             }
+            positionRepository.deleteAll(removed);
+            PositionPipelineEvents.written(inserted.size() + updated + removed.size());
             
-            // Update processing state for full recalculation
-            List<Transaction> allTransactionsForState = transactionRepository.findAll();
-            updateLastProcessedTransactionId(allTransactionsForState);
+            positionChangePublisher.publish(changes);
+            Set<String> securityCodes = securityCodesOf(positionMap.keySet());
+            flush.commit(positionMap.size(), () -> securityCodes);
+            event.commit(positions.size(), securityCodes.size());
             
             return savedPositions;
             
         } catch (Exception e) {
+            if (WriteConflictRetry.isConflict(e)) {
+                throw e;
+            }
             log.error("Error in position recalculation: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
 
-    private void processTradeForPositions(List<Transaction> transactions, Map<String, Integer> positionMap) {
-        if (transactions.isEmpty()) {
-            return;
-        }
-        
-        Long tradeId = transactions.get(0).getTradeId();
-        
-        boolean isCancelled = transactions.stream()
-                .anyMatch(tx -> tx.getAction() == Transaction.TransactionAction.CANCEL);
-        
-        if (isCancelled) {
-            Transaction latestTransaction = transactions.stream()
-                    .max(Comparator.comparingInt(Transaction::getVersion))
-                    .orElse(null);
-
-            String securityCode = latestTransaction.getSecurityCode();
-            positionMap.put(securityCode, 0);
-            return;
-        }
-        
-        Transaction latestTransaction = transactions.stream()
-                .max(Comparator.comparingInt(Transaction::getVersion))
-                .orElse(null);
-        
-        if (latestTransaction == null) {
-            return;
-        }
-        
-        String securityCode = latestTransaction.getSecurityCode();
-        int quantity = latestTransaction.getQuantity();
-        int impact = latestTransaction.getSide() == Transaction.TransactionSide.BUY ? quantity : -quantity;
-        
-        positionMap.merge(securityCode, impact, Integer::sum);
+    /** A trade's effect on the book before and after a write, and its contribution once written */
+    private record TradeChange(PositionFold.Effect before, PositionFold.Effect after, TradeContribution live) {
     }
-} 
\ No newline at end of file
+}
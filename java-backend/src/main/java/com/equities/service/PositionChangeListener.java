@@ -0,0 +1,24 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+
+import java.util.List;
+
+/**
+ * Receives committed changes to the position book so in-memory views can be
+ * maintained incrementally instead of being rebuilt from the positions table.
+ */
+public interface PositionChangeListener {
+
+    /**
+     * Called once per committed write, in commit order, with changes in the order they were applied.
+     */
+    void onPositionsChanged(List<PositionChange> changes);
+
+    /**
+     * Replaces the listener's state with the given book of detached positions across all
+     * accounts, e.g. at startup, after a clear or after a full recalculation.
+     */
+    void onPositionsReset(List<Position> book);
+}
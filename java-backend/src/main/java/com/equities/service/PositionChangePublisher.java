@@ -0,0 +1,155 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.repository.PositionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatches position changes to all {@link PositionChangeListener} beans once the
+ * surrounding transaction commits. Changes from a rolled back transaction are dropped,
+ * so listeners only ever see what is actually in the positions table.
+ * <p>
+ * Listeners receive absolute values, so they must see commits in the order they happened;
+ * commit callbacks alone run in whatever order the committing threads get to them. Every
+ * action therefore takes a place in one sequence when it is registered and is delivered in
+ * that order, one at a time, by whichever thread fills the next gap. Writers register after
+ * reading the position rows they change, which are version-checked when they commit, and
+ * register trade changes under their trade's {@link HighWaterMark} stripe, held until they
+ * commit, so for any one row or trade the sequence is the commit order. A transaction that
+ * rolls back still gives up its place.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PositionChangePublisher {
+
+    private final ObjectProvider<PositionChangeListener> listeners;
+    private final PositionRepository positionRepository;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Runnable> pending = new HashMap<>();
+    private long delivered;
+    private final ThreadLocal<Long> committedHere = new ThreadLocal<>();
+
+    /**
+     * Loads the persisted book into every listener. Called once during startup warm-up.
+     *
+     * @return number of positions loaded
+     */
+    public int initialiseListeners() {
+        List<Position> positions = positionRepository.findAllDetachedOrderByAccountAndSecurityCode();
+        log.info("Initialising position listeners from {} persisted positions", positions.size());
+        publishReset(positions);
+        return positions.size();
+    }
+
+    public void publish(List<PositionChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<PositionChange> snapshot = List.copyOf(changes);
+        afterCommit(() -> listeners.orderedStream().forEach(listener -> listener.onPositionsChanged(snapshot)));
+    }
+
+    public void publishReset(List<Position> positions) {
+        List<Position> snapshot = positions.stream()
+                .map(p -> Position.builder()
+                        .account(p.getAccount())
+                        .securityCode(p.getSecurityCode())
+                        .quantity(p.getQuantity())
+                        .notional(p.getNotional())
+                        .vwap(p.getVwap())
+                        .build())
+                .toList();
+        afterCommit(() -> listeners.orderedStream().forEach(listener -> listener.onPositionsReset(snapshot)));
+    }
+
+    /**
+     * Runs the action once the surrounding transaction commits, or immediately outside one,
+     * after every action registered before it has run or been dropped.
+     */
+    void afterCommit(Runnable action) {
+        long position = sequence.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(position, action);
+            committedHere.set(position);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                boolean committed = status == STATUS_COMMITTED;
+                deliver(position, committed ? action : () -> { });
+                if (committed) {
+                    committedHere.set(position);
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits until every action this thread's committed transactions registered has run, which
+     * may mean waiting for earlier transactions of other threads to complete; a writer that then
+     * reads a listener's state sees its own write. Returns at once inside a transaction, whose
+     * own actions are not committed yet and which may hold locks those earlier transactions need.
+     */
+    public void awaitOwnChanges() {
+        Long position = committedHere.get();
+        if (position == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        committedHere.remove();
+        synchronized (this) {
+            while (delivered < position) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized void deliver(long position, Runnable action) {
+        pending.put(position, action);
+        Runnable next;
+        while ((next = pending.remove(delivered + 1)) != null) {
+            delivered++;
+            try {
+                next.run();
+            } catch (RuntimeException e) {
+                log.error("Position change listener failed: {}", e.getMessage(), e);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Runs the action once the surrounding transaction completes, whether it commits or rolls
+     * back, or immediately outside one.
+     */
+    void afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package com.equities.service;
+
+import com.equities.model.TradeContribution;
+import com.equities.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The fold from trade versions to positions, shared by the calculation engine and the reconciler.
+ * Only the latest version of a trade counts; a trade with any CANCEL version contributes nothing,
+ * but still leaves an entry for its (account, security) cell so the position row is kept.
+ * Cells are keyed by {@link PositionKeys} packed longs.
+ */
+final class PositionFold {
+
+    private PositionFold() {
+    }
+
+    /**
+     * Adds the trade's {@link Effect} to the totals of its cell.
+     */
+    static void foldTrade(List<Transaction> transactions, Map<Long, CellTotals> cells, PositionKeys keys) {
+        Effect effect = effectOf(transactions, keys);
+        if (effect != null) {
+            cells.computeIfAbsent(effect.cell(), cell -> new CellTotals()).add(effect);
+        }
+    }
+
+    /**
+     * What a trade does to the position book, or null when it has no versions.
+     */
+    static Effect effectOf(List<Transaction> transactions, PositionKeys keys) {
+        if (transactions.isEmpty()) {
+            return null;
+        }
+        Transaction latestTransaction = latestVersion(transactions);
+        boolean cancelled = isCancelled(transactions);
+        return new Effect(keys.keyOf(latestTransaction),
+                cancelled ? 0 : signedQuantity(latestTransaction),
+                cancelled || latestTransaction.getPrice() == null ? null : latestTransaction);
+    }
+
+    /**
+     * Passes each trade's versions to the consumer, for a cursor ordered by trade id. The list is
+     * reused between trades.
+     */
+    static void forEachTrade(Iterator<Transaction> transactions, Consumer<List<Transaction>> consumer) {
+        List<Transaction> tradeTransactions = new ArrayList<>();
+        while (transactions.hasNext()) {
+            Transaction transaction = transactions.next();
+            if (!tradeTransactions.isEmpty() && !tradeTransactions.get(0).getTradeId().equals(transaction.getTradeId())) {
+                consumer.accept(tradeTransactions);
+                tradeTransactions.clear();
+            }
+            tradeTransactions.add(transaction);
+        }
+        if (!tradeTransactions.isEmpty()) {
+            consumer.accept(tradeTransactions);
+        }
+    }
+
+    /**
+     * What a trade contributes to its position, or null when it has been cancelled or has no versions.
+     */
+    static TradeContribution contribution(List<Transaction> transactions) {
+        if (transactions.isEmpty() || isCancelled(transactions)) {
+            return null;
+        }
+        Transaction latestTransaction = latestVersion(transactions);
+        return TradeContribution.builder()
+                .tradeId(latestTransaction.getTradeId())
+                .transactionId(latestTransaction.getTransactionId())
+                .version(latestTransaction.getVersion())
+                .account(latestTransaction.getAccount())
+                .securityCode(latestTransaction.getSecurityCode())
+                .side(latestTransaction.getSide())
+                .quantity(latestTransaction.getQuantity())
+                .price(latestTransaction.getPrice())
+                .impact(signedQuantity(latestTransaction))
+                .build();
+    }
+
+    private static Transaction latestVersion(List<Transaction> transactions) {
+        Transaction latestTransaction = transactions.get(0);
+        for (Transaction tx : transactions) {
+            if (tx.getVersion() > latestTransaction.getVersion()) {
+                latestTransaction = tx;
+            }
+        }
+        return latestTransaction;
+    }
+
+    private static boolean isCancelled(List<Transaction> transactions) {
+        for (Transaction tx : transactions) {
+            if (tx.getAction() == Transaction.TransactionAction.CANCEL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int signedQuantity(Transaction transaction) {
+        int quantity = transaction.getQuantity();
+        return transaction.getSide() == Transaction.TransactionSide.BUY ? quantity : -quantity;
+    }
+
+    /**
+     * A trade's contribution to the book: the cell of its latest version, its signed quantity
+     * there (0 once cancelled) and the version whose price counts, null when cancelled or unpriced.
+     */
+    record Effect(long cell, int impact, Transaction priced) {
+    }
+}
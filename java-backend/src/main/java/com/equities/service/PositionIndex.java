@@ -0,0 +1,228 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.model.PositionPage;
+import com.equities.model.PositionQuery;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sorted in-memory index of the committed position book: one book per account, each keeping a
+ * skip list of its positions by security code for every {@link PositionQuery.Direction} and a
+ * count per direction. Filtered reads walk only the matching key range of the skip list for the
+ * requested direction, so prefix, range and code-list queries never scan the whole book or touch
+ * the database, and reads for one account never visit another account's book. Reads filtered by
+ * direction alone take their total from the counts and skip whole books that end before the
+ * requested page, so a page costs its offset within one book plus its size.
+ * <p>
+ * Writes are serialised; reads are lock-free and may see a concurrent change half-applied.
+ */
+@Component
+public class PositionIndex implements PositionChangeListener {
+
+    private static final PositionQuery.Direction[] DIRECTIONS = PositionQuery.Direction.values();
+
+    private final ConcurrentSkipListMap<String, Book> books = new ConcurrentSkipListMap<>();
+    private final AtomicLongArray totals = new AtomicLongArray(DIRECTIONS.length);
+
+    @Override
+    public synchronized void onPositionsChanged(List<PositionChange> changes) {
+        for (PositionChange change : changes) {
+            if (change.isRemoval()) {
+                Book book = books.get(change.getAccount());
+                if (book != null) {
+                    book.remove(change.getSecurityCode(), totals);
+                }
+            } else {
+                books.computeIfAbsent(change.getAccount(), account -> new Book())
+                        .put(change.getSecurityCode(), change.toPosition(), totals);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onPositionsReset(List<Position> book) {
+        Map<String, Book> byAccount = new HashMap<>();
+        for (Position position : book) {
+            byAccount.computeIfAbsent(position.getAccount(), account -> new Book())
+                    .put(position.getSecurityCode(), position, null);
+        }
+        books.keySet().retainAll(byAccount.keySet());
+        books.putAll(byAccount);
+        for (PositionQuery.Direction direction : DIRECTIONS) {
+            totals.set(direction.ordinal(), byAccount.values().stream().mapToLong(b -> b.count(direction)).sum());
+        }
+    }
+
+    public PositionPage query(PositionQuery query) {
+        PositionQuery.Direction direction = query.getDirection() == null ? PositionQuery.Direction.ALL : query.getDirection();
+        long offset = query.getSize() > 0 ? (long) query.getPage() * query.getSize() : 0;
+        int limit = query.getSize() > 0 ? query.getSize() : Integer.MAX_VALUE;
+
+        Collection<Book> accounts = books.values();
+        if (query.getAccount() != null) {
+            Book book = books.get(query.getAccount());
+            accounts = book == null ? List.of() : List.of(book);
+        }
+
+        if (!filtersSecurityCodes(query)) {
+            return page(accounts, direction, offset, limit, query.getAccount() == null
+                    ? totals.get(direction.ordinal())
+                    : accounts.stream().mapToLong(book -> book.count(direction)).sum());
+        }
+
+        List<Position> content = new ArrayList<>();
+        long matched = 0;
+        for (Book book : accounts) {
+            NavigableMap<String, Position> positions = book.positions(direction);
+            if (query.getSecurityCodes() != null && !query.getSecurityCodes().isEmpty()) {
+                for (String securityCode : new TreeSet<>(query.getSecurityCodes())) {
+                    Position position = positions.get(securityCode);
+                    if (position != null && inRange(securityCode, query)) {
+                        matched = collect(content, position, matched, offset, limit);
+                    }
+                }
+            } else {
+                String prefix = query.getPrefix();
+                for (Map.Entry<String, Position> entry : range(positions, query).entrySet()) {
+                    if (prefix != null && !entry.getKey().startsWith(prefix)) {
+                        break;
+                    }
+                    matched = collect(content, entry.getValue(), matched, offset, limit);
+                }
+            }
+        }
+
+        return PositionPage.builder()
+                .positions(content)
+                .totalElements(matched)
+                .build();
+    }
+
+    public int size() {
+        return (int) totals.get(PositionQuery.Direction.ALL.ordinal());
+    }
+
+    /**
+     * A page of a read filtered by direction alone: books that end before the offset are skipped
+     * by their count, and the walk stops once the page is full.
+     */
+    private static PositionPage page(Collection<Book> accounts, PositionQuery.Direction direction,
+                                     long offset, int limit, long total) {
+        List<Position> content = new ArrayList<>();
+        long skip = offset;
+        for (Book book : accounts) {
+            if (content.size() >= limit) {
+                break;
+            }
+            long count = book.count(direction);
+            if (skip >= count) {
+                skip -= count;
+                continue;
+            }
+            Iterator<Position> positions = book.positions(direction).values().iterator();
+            while (positions.hasNext() && content.size() < limit) {
+                Position position = positions.next();
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    content.add(position);
+                }
+            }
+        }
+        return PositionPage.builder()
+                .positions(content)
+                .totalElements(total)
+                .build();
+    }
+
+    private static boolean filtersSecurityCodes(PositionQuery query) {
+        return (query.getSecurityCodes() != null && !query.getSecurityCodes().isEmpty())
+                || query.getPrefix() != null || query.getFrom() != null || query.getTo() != null;
+    }
+
+    private static NavigableMap<String, Position> range(NavigableMap<String, Position> positions, PositionQuery query) {
+        String lower = query.getFrom();
+        if (query.getPrefix() != null && (lower == null || query.getPrefix().compareTo(lower) > 0)) {
+            lower = query.getPrefix();
+        }
+        if (lower != null && query.getTo() != null && lower.compareTo(query.getTo()) >= 0) {
+            return new ConcurrentSkipListMap<>();
+        }
+        NavigableMap<String, Position> range = lower == null ? positions : positions.tailMap(lower, true);
+        return query.getTo() == null ? range : range.headMap(query.getTo(), false);
+    }
+
+    private static boolean inRange(String securityCode, PositionQuery query) {
+        return (query.getPrefix() == null || securityCode.startsWith(query.getPrefix()))
+                && (query.getFrom() == null || securityCode.compareTo(query.getFrom()) >= 0)
+                && (query.getTo() == null || securityCode.compareTo(query.getTo()) < 0);
+    }
+
+    private static long collect(List<Position> content, Position position, long matched, long offset, int limit) {
+        if (matched >= offset && content.size() < limit) {
+            content.add(position);
+        }
+        return matched + 1;
+    }
+
+    /**
+     * One account's positions, once per direction they match, with a count per direction.
+     */
+    private static final class Book {
+
+        private final List<ConcurrentSkipListMap<String, Position>> byDirection = new ArrayList<>();
+        private final AtomicLongArray counts = new AtomicLongArray(DIRECTIONS.length);
+
+        Book() {
+            for (int i = 0; i < DIRECTIONS.length; i++) {
+                byDirection.add(new ConcurrentSkipListMap<>());
+            }
+        }
+
+        NavigableMap<String, Position> positions(PositionQuery.Direction direction) {
+            return byDirection.get(direction.ordinal());
+        }
+
+        long count(PositionQuery.Direction direction) {
+            return counts.get(direction.ordinal());
+        }
+
+        /** Adds to the totals as well as the book's own counts, unless totals is null */
+        void put(String securityCode, Position position, AtomicLongArray totals) {
+            remove(securityCode, totals);
+            for (PositionQuery.Direction direction : DIRECTIONS) {
+                if (direction.matches(position.getQuantity())) {
+                    byDirection.get(direction.ordinal()).put(securityCode, position);
+                    add(direction, 1, totals);
+                }
+            }
+        }
+
+        void remove(String securityCode, AtomicLongArray totals) {
+            for (PositionQuery.Direction direction : DIRECTIONS) {
+                if (byDirection.get(direction.ordinal()).remove(securityCode) != null) {
+                    add(direction, -1, totals);
+                }
+            }
+        }
+
+        private void add(PositionQuery.Direction direction, int delta, AtomicLongArray totals) {
+            counts.addAndGet(direction.ordinal(), delta);
+            if (totals != null) {
+                totals.addAndGet(direction.ordinal(), delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Packs an (account, security) cell of the position book into a single long: the account id
+ * in the high 32 bits and the security id in the low 32 bits. The calculation engine keys its
+ * working maps on these instead of concatenated strings.
+ */
+@Component
+@RequiredArgsConstructor
+public class PositionKeys {
+
+    private final AccountDictionary accountDictionary;
+    private final SecurityDictionary securityDictionary;
+
+    public long keyOf(String account, String securityCode) {
+        return pack(accountDictionary.idOf(account), securityDictionary.idOf(securityCode));
+    }
+
+    public long keyOf(Transaction transaction) {
+        return keyOf(transaction.getAccount(), transaction.getSecurityCode());
+    }
+
+    public long keyOf(Position position) {
+        return keyOf(position.getAccount(), position.getSecurityCode());
+    }
+
+    public String accountOf(long key) {
+        return accountDictionary.codeOf((int) (key >>> 32));
+    }
+
+    public String securityCodeOf(long key) {
+        return securityDictionary.codeOf((int) key);
+    }
+
+    static long pack(int accountId, int securityId) {
+        return ((long) accountId << 32) | (securityId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,243 @@
+package com.equities.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * JDK Flight Recorder events emitted by {@link PositionCalculationService}, so JDBC and Hibernate
+ * samples in a recording can be tied to the business operation that caused them.
+ * <p>
+ * Events nest on the calling thread: a transaction event spans its delta recalculation, which
+ * spans the position flush. Rows read and written are counted per thread and each event reports
+ * the difference between its begin and end, so every level carries its own totals.
+ * <p>
+ * Thresholds default to the {@link Threshold} annotations and can be overridden by the recording
+ * settings ({@code com.equities.TransactionProcessed#threshold=20 ms}) or, for the in-process
+ * recording, by the {@code equities.jfr.threshold.*} properties. Fields are only populated once
+ * {@link Event#shouldCommit()} is true, so a disabled or below-threshold event costs a few
+ * counter increments; security lists are passed as suppliers and never built in that case.
+ */
+public final class PositionPipelineEvents {
+
+    private static final int MAX_SECURITIES_LENGTH = 1024;
+
+    /** rows read, rows written */
+    private static final ThreadLocal<long[]> ROWS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private PositionPipelineEvents() {
+    }
+
+    @Name("com.equities.TransactionProcessed")
+    @Label("Transaction Processed")
+    @Category({"Equities", "Position Pipeline"})
+    @Description("A single or bulk transaction post, from validation to the returned positions")
+    @StackTrace(false)
+    @Threshold("10 ms")
+    public static class TransactionProcessed extends Event {
+
+        @Label("Trade Id")
+        @Description("Trade of a single post, or -1 for a bulk post")
+        long tradeId;
+
+        @Label("Transactions")
+        int transactions;
+
+        @Label("Edit")
+        @Description("Whether the post edited an existing transaction in place")
+        boolean edit;
+
+        @Label("Securities")
+        String securities;
+
+        @Label("Rows Read")
+        long rowsRead;
+
+        @Label("Rows Written")
+        long rowsWritten;
+
+        private final transient long readAtBegin = rowsRead();
+        private final transient long writtenAtBegin = rowsWritten();
+
+        TransactionProcessed() {
+            begin();
+        }
+
+        void commit(long tradeId, int transactions, boolean edit, Supplier<? extends Collection<String>> securities) {
+            end();
+            if (shouldCommit()) {
+                this.tradeId = tradeId;
+                this.transactions = transactions;
+                this.edit = edit;
+                this.securities = join(securities.get());
+                this.rowsRead = rowsRead() - readAtBegin;
+                this.rowsWritten = rowsWritten() - writtenAtBegin;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.equities.DeltaRecalculation")
+    @Label("Delta Recalculation")
+    @Category({"Equities", "Position Pipeline"})
+    @Description("Recalculation of the cells touched by new or edited transactions")
+    @StackTrace(false)
+    @Threshold("10 ms")
+    public static class DeltaRecalculation extends Event {
+
+        @Label("New Transactions")
+        int newTransactions;
+
+        @Label("Cells")
+        int cells;
+
+        @Label("Securities")
+        String securities;
+
+        @Label("Rows Read")
+        long rowsRead;
+
+        @Label("Rows Written")
+        long rowsWritten;
+
+        private final transient long readAtBegin = rowsRead();
+        private final transient long writtenAtBegin = rowsWritten();
+
+        DeltaRecalculation() {
+            begin();
+        }
+
+        void commit(int newTransactions, int cells, Supplier<? extends Collection<String>> securities) {
+            end();
+            if (shouldCommit()) {
+                this.newTransactions = newTransactions;
+                this.cells = cells;
+                this.securities = join(securities.get());
+                this.rowsRead = rowsRead() - readAtBegin;
+                this.rowsWritten = rowsWritten() - writtenAtBegin;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.equities.FullRecalculation")
+    @Label("Full Recalculation")
+    @Category({"Equities", "Position Pipeline"})
+    @Description("Rebuild of the whole position book from every transaction")
+    @StackTrace(false)
+    @Threshold("0 ms")
+    public static class FullRecalculation extends Event {
+
+        @Label("Positions")
+        @Description("Cells in the rebuilt book, including flattened cells removed from the table")
+        int positions;
+
+        @Label("Securities")
+        @Description("Number of distinct securities in the rebuilt book")
+        int securities;
+
+        @Label("Rows Read")
+        long rowsRead;
+
+        @Label("Rows Written")
+        long rowsWritten;
+
+        private final transient long readAtBegin = rowsRead();
+        private final transient long writtenAtBegin = rowsWritten();
+
+        FullRecalculation() {
+            begin();
+        }
+
+        void commit(int positions, int securities) {
+            end();
+            if (shouldCommit()) {
+                this.positions = positions;
+                this.securities = securities;
+                this.rowsRead = rowsRead() - readAtBegin;
+                this.rowsWritten = rowsWritten() - writtenAtBegin;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.equities.PositionFlush")
+    @Label("Position Flush")
+    @Category({"Equities", "Position Pipeline"})
+    @Description("Write of recalculated cells to the positions table")
+    @StackTrace(false)
+    @Threshold("5 ms")
+    public static class PositionFlush extends Event {
+
+        @Label("Cells")
+        int cells;
+
+        @Label("Securities")
+        String securities;
+
+        @Label("Rows Read")
+        long rowsRead;
+
+        @Label("Rows Written")
+        long rowsWritten;
+
+        private final transient long readAtBegin = rowsRead();
+        private final transient long writtenAtBegin = rowsWritten();
+
+        PositionFlush() {
+            begin();
+        }
+
+        void commit(int cells, Supplier<? extends Collection<String>> securities) {
+            end();
+            if (shouldCommit()) {
+                this.cells = cells;
+                this.securities = join(securities.get());
+                this.rowsRead = rowsRead() - readAtBegin;
+                this.rowsWritten = rowsWritten() - writtenAtBegin;
+                commit();
+            }
+        }
+    }
+
+    static void read(long rows) {
+        ROWS.get()[0] += rows;
+    }
+
+    static void written(long rows) {
+        ROWS.get()[1] += rows;
+    }
+
+    private static long rowsRead() {
+        return ROWS.get()[0];
+    }
+
+    private static long rowsWritten() {
+        return ROWS.get()[1];
+    }
+
+    /**
+     * Sorted, comma-separated security codes, truncated so a bulk post cannot produce an oversized event.
+     */
+    private static String join(Collection<String> securities) {
+        StringBuilder joined = new StringBuilder();
+        for (String securityCode : new TreeSet<>(securities)) {
+            if (joined.length() + securityCode.length() + 1 > MAX_SECURITIES_LENGTH) {
+                return joined.append(",...").toString();
+            }
+            if (!joined.isEmpty()) {
+                joined.append(',');
+            }
+            joined.append(securityCode);
+        }
+        return joined.toString();
+    }
+}
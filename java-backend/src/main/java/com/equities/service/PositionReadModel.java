@@ -0,0 +1,95 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.model.PositionSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read side of the position book. Every committed change produces a new immutable
+ * {@link PositionSnapshot} (copy-on-write per account) that is swapped in through an atomic
+ * reference, so readers never take a lock, never touch the database and always see a complete
+ * book, however long a concurrent write or full recalculation runs.
+ * <p>
+ * Snapshots are built by the thread delivering the commit; changes arrive in commit order and
+ * publication is serialised, so versions are strictly increasing.
+ */
+@Component
+public class PositionReadModel implements PositionChangeListener {
+
+    private final AtomicReference<PositionSnapshot> current = new AtomicReference<>(PositionSnapshot.EMPTY);
+
+    public PositionReadModel(MeterRegistry meterRegistry) {
+        Gauge.builder("equities.positions.snapshot.version", current, ref -> ref.get().getVersion())
+                .description("Version of the position snapshot served to readers")
+                .register(meterRegistry);
+    }
+
+    public PositionSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Copies only the accounts the changes touch; every other account's list is shared with
+     * the previous snapshot, so a write costs its accounts rather than the whole book.
+     */
+    @Override
+    public synchronized void onPositionsChanged(List<PositionChange> changes) {
+        PositionSnapshot previous = current.get();
+        Map<String, TreeMap<String, Position>> touched = new HashMap<>();
+        for (PositionChange change : changes) {
+            TreeMap<String, Position> account = touched.computeIfAbsent(change.getAccount(),
+                    key -> securitiesOf(previous.getAccounts().get(key)));
+            if (change.isRemoval()) {
+                account.remove(change.getSecurityCode());
+            } else {
+                account.put(change.getSecurityCode(), change.toPosition());
+            }
+        }
+
+        TreeMap<String, List<Position>> accounts = new TreeMap<>(previous.getAccounts());
+        touched.forEach((account, securities) -> {
+            if (securities.isEmpty()) {
+                accounts.remove(account);
+            } else {
+                accounts.put(account, List.copyOf(securities.values()));
+            }
+        });
+        publish(previous, accounts);
+    }
+
+    @Override
+    public synchronized void onPositionsReset(List<Position> positions) {
+        Map<String, TreeMap<String, Position>> book = new HashMap<>();
+        for (Position position : positions) {
+            book.computeIfAbsent(position.getAccount(), key -> new TreeMap<>())
+                    .put(position.getSecurityCode(), position);
+        }
+        TreeMap<String, List<Position>> accounts = new TreeMap<>();
+        book.forEach((account, securities) -> accounts.put(account, List.copyOf(securities.values())));
+        publish(current.get(), accounts);
+    }
+
+    private void publish(PositionSnapshot previous, TreeMap<String, List<Position>> accounts) {
+        current.set(new PositionSnapshot(previous.getVersion() + 1, LocalDateTime.now(), accounts));
+    }
+
+    private static TreeMap<String, Position> securitiesOf(List<Position> positions) {
+        TreeMap<String, Position> securities = new TreeMap<>();
+        if (positions != null) {
+            for (Position position : positions) {
+                securities.put(position.getSecurityCode(), position);
+            }
+        }
+        return securities;
+    }
+}
@@ -0,0 +1,330 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.model.ReconciliationMismatch;
+import com.equities.model.ReconciliationReport;
+import com.equities.model.Transaction;
+import com.equities.repository.PositionRepository;
+import com.equities.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Background reconciliation of the positions table against a from-scratch fold of each
+ * security's trades, covering quantity, notional, VWAP and whether the row should exist.
+ * Securities are walked in chunks on a single low-priority thread, and the delay between chunks
+ * is sized so reconciliation uses at most the configured duty cycle of wall-clock time; chunks are also deferred while ingest is saturated.
+ * <p>
+ * Mismatches are confirmed by a second read before being reported, and are written back
+ * (and published to position listeners) when repair is enabled. A repair confirms them holding
+ * every {@link HighWaterMark} stripe, one of which every position write holds until it commits,
+ * so a write in flight can neither be reported as drift nor be overwritten.
+ */
+@Component
+@Slf4j
+public class PositionReconciler {
+
+    private static final String START_CURSOR = "";
+
+    private final TransactionRepository transactionRepository;
+    private final PositionRepository positionRepository;
+    private final HighWaterMark highWaterMark;
+    private final PositionChangePublisher positionChangePublisher;
+    private final IngestLimiter ingestLimiter;
+    private final PositionKeys positionKeys;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    private final boolean enabled;
+    private final boolean repairEnabled;
+    private final int chunkSize;
+    private final double dutyCycle;
+    private final long minDelayMs;
+    private final int maxRecentMismatches;
+
+    private final Counter checked;
+    private final Counter found;
+    private final Counter repaired;
+
+    private final Deque<ReconciliationMismatch> recentMismatches = new ArrayDeque<>();
+    private String cursor = START_CURSOR;
+    private long passesCompleted;
+    private ScheduledExecutorService scheduler;
+
+    public PositionReconciler(TransactionRepository transactionRepository,
+                              PositionRepository positionRepository,
+                              HighWaterMark highWaterMark,
+                              PositionChangePublisher positionChangePublisher,
+                              IngestLimiter ingestLimiter,
+                              PositionKeys positionKeys,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${equities.reconciliation.enabled:true}") boolean enabled,
+                              @Value("${equities.reconciliation.repair:false}") boolean repairEnabled,
+                              @Value("${equities.reconciliation.chunk-size:200}") int chunkSize,
+                              @Value("${equities.reconciliation.duty-cycle:0.05}") double dutyCycle,
+                              @Value("${equities.reconciliation.min-delay-ms:1000}") long minDelayMs,
+                              @Value("${equities.reconciliation.max-recent-mismatches:100}") int maxRecentMismatches) {
+        this.transactionRepository = transactionRepository;
+        this.positionRepository = positionRepository;
+        this.highWaterMark = highWaterMark;
+        this.positionChangePublisher = positionChangePublisher;
+        this.ingestLimiter = ingestLimiter;
+        this.positionKeys = positionKeys;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.repairEnabled = repairEnabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.dutyCycle = Math.min(1.0, Math.max(0.001, dutyCycle));
+        this.minDelayMs = Math.max(0, minDelayMs);
+        this.maxRecentMismatches = maxRecentMismatches;
+
+        this.checked = Counter.builder("equities.reconciliation.checked")
+                .description("Securities checked by the position reconciler")
+                .register(meterRegistry);
+        this.found = Counter.builder("equities.reconciliation.mismatches")
+                .description("Confirmed position mismatches")
+                .register(meterRegistry);
+        this.repaired = Counter.builder("equities.reconciliation.repaired")
+                .description("Position mismatches repaired")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PositionReconciler");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.schedule(this::runChunk, minDelayMs, TimeUnit.MILLISECONDS);
+        log.info("Position reconciler started (chunk size {}, duty cycle {}, repair {})", chunkSize, dutyCycle, repairEnabled);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Checks the next chunk of securities, wrapping around to the start of the book at the end of a pass.
+     *
+     * @return confirmed mismatches in this chunk
+     */
+    public synchronized List<ReconciliationMismatch> reconcileNextChunk() {
+        List<String> chunk = readOnlyTransaction.execute(status -> nextChunk(cursor));
+        if (chunk == null || chunk.isEmpty()) {
+            if (!START_CURSOR.equals(cursor)) {
+                passesCompleted++;
+                log.debug("Position reconciliation pass {} completed", passesCompleted);
+            }
+            cursor = START_CURSOR;
+            return List.of();
+        }
+        cursor = chunk.get(chunk.size() - 1);
+        checked.increment(chunk.size());
+
+        List<String> suspects = readOnlyTransaction.execute(status -> findDrift(chunk).stream()
+                .map(drift -> drift.mismatch().getSecurityCode())
+                .distinct()
+                .toList());
+        if (suspects == null || suspects.isEmpty()) {
+            return List.of();
+        }
+
+        // Confirm against a fresh read; a repair confirms and writes under the lock of the position
+        // writers, so nothing it read can change before it commits
+        TransactionTemplate confirmTransaction = repairEnabled ? writeTransaction : readOnlyTransaction;
+        List<ReconciliationMismatch> mismatches = confirmTransaction.execute(status -> {
+            if (repairEnabled) {
+                highWaterMark.lockAll();
+            }
+            List<Drift> confirmed = findDrift(suspects);
+            if (repairEnabled) {
+                repair(confirmed);
+            }
+            return confirmed.stream().map(Drift::mismatch).toList();
+        });
+
+        for (ReconciliationMismatch mismatch : mismatches) {
+            log.warn("Position drift for {}/{}: persisted {} @ {}, expected {} @ {}{}", mismatch.getAccount(), mismatch.getSecurityCode(),
+                    mismatch.getPersistedQuantity(), mismatch.getPersistedVwap(), mismatch.getExpectedQuantity(), mismatch.getExpectedVwap(),
+                    mismatch.isRepaired() ? " (repaired)" : "");
+            recentMismatches.addFirst(mismatch);
+            if (recentMismatches.size() > maxRecentMismatches) {
+                recentMismatches.removeLast();
+            }
+        }
+        found.increment(mismatches.size());
+        if (repairEnabled) {
+            repaired.increment(mismatches.size());
+        }
+        return mismatches;
+    }
+
+    public synchronized ReconciliationReport getReport() {
+        return ReconciliationReport.builder()
+                .running(scheduler != null)
+                .repairEnabled(repairEnabled)
+                .passesCompleted(passesCompleted)
+                .securitiesChecked((long) checked.count())
+                .mismatchesFound((long) found.count())
+                .mismatchesRepaired((long) repaired.count())
+                .cursor(cursor)
+                .recentMismatches(List.copyOf(recentMismatches))
+                .build();
+    }
+
+    private void runChunk() {
+        long delayMs = minDelayMs;
+        try {
+            if (ingestLimiter.getInFlight() >= ingestLimiter.getLimit()) {
+                log.debug("Ingest saturated, deferring reconciliation chunk");
+            } else {
+                long start = System.nanoTime();
+                reconcileNextChunk();
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                delayMs = Math.max(minDelayMs, (long) (elapsedMs * (1 - dutyCycle) / dutyCycle));
+            }
+        } catch (RuntimeException e) {
+            log.error("Position reconciliation chunk failed: {}", e.getMessage(), e);
+        } finally {
+            synchronized (this) {
+                if (scheduler != null) {
+                    scheduler.schedule(this::runChunk, delayMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private List<String> nextChunk(String after) {
+        PageRequest page = PageRequest.of(0, chunkSize);
+        TreeSet<String> codes = new TreeSet<>(transactionRepository.findSecurityCodesAfter(after, page));
+        codes.addAll(positionRepository.findSecurityCodesAfter(after, page));
+        return codes.stream().limit(chunkSize).toList();
+    }
+
+    /**
+     * Compares every (account, security) cell of the given securities, in account then security order.
+     * Positions are read before the trades they are checked against; outside the repair lock, a
+     * write committing between the two reads shows up as a suspect that the confirming read clears.
+     * Each cell is folded as the calculation engine folds it, so a cell whose trades are all
+     * cancelled expects a flat row and a cell without trades expects none.
+     */
+    private List<Drift> findDrift(List<String> securityCodes) {
+        Map<Long, Position> persisted = positionRepository.findBySecurityCodeIn(securityCodes).stream()
+                .collect(Collectors.toMap(positionKeys::keyOf, p -> p));
+
+        Map<Long, CellTotals> expected = new HashMap<>();
+        List<Long> tradeIds = transactionRepository.findTradeIdsBySecurityCodes(securityCodes);
+        if (!tradeIds.isEmpty()) {
+            List<Transaction> transactions = transactionRepository.findTransactionsByTradeIds(tradeIds);
+            PositionFold.forEachTrade(transactions.iterator(), trade -> PositionFold.foldTrade(trade, expected, positionKeys));
+        }
+
+        // Trades that moved away may fold into securities outside this chunk; those are checked with their own chunk
+        Set<String> chunk = new HashSet<>(securityCodes);
+        TreeSet<Long> cells = new TreeSet<>(Comparator.comparing(positionKeys::accountOf)
+                .thenComparing(positionKeys::securityCodeOf));
+        for (Long cell : expected.keySet()) {
+            if (chunk.contains(positionKeys.securityCodeOf(cell))) {
+                cells.add(cell);
+            }
+        }
+        cells.addAll(persisted.keySet());
+
+        List<Drift> drift = new ArrayList<>();
+        for (long cell : cells) {
+            CellTotals totals = expected.get(cell);
+            Position position = persisted.get(cell);
+            boolean matches = totals == null ? position == null : position != null && totals.matches(position);
+            if (!matches) {
+                drift.add(new Drift(cell, totals, ReconciliationMismatch.builder()
+                        .account(positionKeys.accountOf(cell))
+                        .securityCode(positionKeys.securityCodeOf(cell))
+                        .persistedQuantity(position == null ? null : position.getQuantity())
+                        .expectedQuantity(totals == null ? null : totals.quantity())
+                        .persistedNotional(position == null ? null : position.getNotional())
+                        .expectedNotional(totals == null ? null : totals.notional())
+                        .persistedVwap(position == null ? null : position.getVwap())
+                        .expectedVwap(totals == null ? null : totals.vwap())
+                        .detectedAt(LocalDateTime.now())
+                        .build()));
+            }
+        }
+        return drift;
+    }
+
+    /**
+     * Rewrites every drifted row from the fold, pricing and trade count included.
+     */
+    private void repair(List<Drift> drift) {
+        if (drift.isEmpty()) {
+            return;
+        }
+        Map<Long, Position> existing = positionRepository.findBySecurityCodeIn(
+                        drift.stream().map(d -> d.mismatch().getSecurityCode()).distinct().toList()).stream()
+                .collect(Collectors.toMap(positionKeys::keyOf, p -> p));
+        List<PositionChange> changes = new ArrayList<>();
+
+        for (Drift d : drift) {
+            String account = d.mismatch().getAccount();
+            String securityCode = d.mismatch().getSecurityCode();
+            Position position = existing.get(d.cell());
+
+            if (d.expected() == null) {
+                positionRepository.delete(position);
+                changes.add(new PositionChange(account, securityCode, null));
+            } else {
+                if (position == null) {
+                    position = Position.builder().account(account).securityCode(securityCode).build();
+                }
+                d.expected().applyTo(position);
+                positionRepository.save(position);
+                changes.add(new PositionChange(account, securityCode, position.getQuantity(), position.getNotional(), position.getVwap()));
+            }
+            d.mismatch().setRepaired(true);
+        }
+
+        positionChangePublisher.publish(changes);
+    }
+
+    /** A drifted cell with the totals its row should hold, null when it should have no row */
+    private record Drift(long cell, CellTotals expected, ReconciliationMismatch mismatch) {
+    }
+}
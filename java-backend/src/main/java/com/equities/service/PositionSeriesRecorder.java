@@ -0,0 +1,187 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.model.PositionSeries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Intraday net position per security, recorded from committed position changes into
+ * fixed-size ring buffers of time buckets.
+ * <p>
+ * Each security owns one ring of {@code equities.series.bucket-count} slots of
+ * {@code equities.series.bucket-width}; a slot holds the open, high, low and close net quantity
+ * of its bucket and the number of changes, in primitive arrays (44 bytes per slot). A slot is
+ * reused once its bucket falls out of the window. Changes carry a cell's new quantity, so the
+ * last quantity of every (account, security) cell is also kept to turn them into net moves, in a
+ * {@link LongIntMap} keyed by the packed cell key (12 bytes per slot, 24 to 48 per cell).
+ * Memory is therefore securities times bucket count plus a few dozen bytes per position cell,
+ * and never depends on the trade count. Resets (startup, full recalculation) are recorded as
+ * changes at the time they happen; a reset to an empty book clears the history.
+ */
+@Component
+public class PositionSeriesRecorder implements PositionChangeListener {
+
+    private final PositionKeys positionKeys;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final Clock clock;
+
+    private final LongIntMap quantities = new LongIntMap();
+    private final Map<String, Ring> rings = new HashMap<>();
+
+    @Autowired
+    public PositionSeriesRecorder(PositionKeys positionKeys,
+                                  @Value("${equities.series.bucket-width:1m}") Duration bucketWidth,
+                                  @Value("${equities.series.bucket-count:600}") int bucketCount) {
+        this(positionKeys, bucketWidth, bucketCount, Clock.systemUTC());
+    }
+
+    PositionSeriesRecorder(PositionKeys positionKeys, Duration bucketWidth, int bucketCount, Clock clock) {
+        this.positionKeys = positionKeys;
+        this.bucketMillis = Math.max(1, bucketWidth.toMillis());
+        this.bucketCount = Math.max(1, bucketCount);
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void onPositionsChanged(List<PositionChange> changes) {
+        long bucket = currentBucket();
+        for (PositionChange change : changes) {
+            long cell = positionKeys.keyOf(change.getAccount(), change.getSecurityCode());
+            int previous = change.isRemoval() ? quantities.remove(cell, 0) : quantities.put(cell, change.getQuantity(), 0);
+            long delta = (long) valueOf(change.getQuantity()) - previous;
+            if (delta != 0) {
+                Ring ring = rings.computeIfAbsent(change.getSecurityCode(), code -> new Ring(bucketCount));
+                ring.record(bucket, ring.net + delta);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onPositionsReset(List<Position> book) {
+        quantities.clear();
+        if (book.isEmpty()) {
+            rings.clear();
+            return;
+        }
+        Map<String, Long> netBySecurity = new HashMap<>();
+        for (Position position : book) {
+            quantities.put(positionKeys.keyOf(position), valueOf(position.getQuantity()), 0);
+            netBySecurity.merge(position.getSecurityCode(), (long) valueOf(position.getQuantity()), Long::sum);
+        }
+        long bucket = currentBucket();
+        for (Map.Entry<String, Ring> entry : rings.entrySet()) {
+            long net = netBySecurity.getOrDefault(entry.getKey(), 0L);
+            if (entry.getValue().net != net) {
+                entry.getValue().record(bucket, net);
+            }
+        }
+        for (Map.Entry<String, Long> entry : netBySecurity.entrySet()) {
+            if (!rings.containsKey(entry.getKey())) {
+                Ring ring = new Ring(bucketCount);
+                ring.record(bucket, entry.getValue());
+                rings.put(entry.getKey(), ring);
+            }
+        }
+    }
+
+    /**
+     * Buckets of the retention window in time order; empty for a security that has not traded.
+     */
+    public synchronized PositionSeries seriesFor(String securityCode) {
+        Ring ring = rings.get(securityCode);
+        List<PositionSeries.Bucket> buckets = new ArrayList<>();
+        if (ring != null) {
+            long now = Math.max(currentBucket(), ring.latest);
+            for (long bucket = now - bucketCount + 1; bucket <= now; bucket++) {
+                int slot = ring.slotOf(bucket);
+                if (ring.buckets[slot] == bucket) {
+                    buckets.add(PositionSeries.Bucket.builder()
+                            .start(Instant.ofEpochMilli(bucket * bucketMillis))
+                            .open(ring.open[slot])
+                            .high(ring.high[slot])
+                            .low(ring.low[slot])
+                            .close(ring.close[slot])
+                            .changes(ring.changes[slot])
+                            .build());
+                }
+            }
+        }
+        return PositionSeries.builder()
+                .securityCode(securityCode)
+                .bucketMillis(bucketMillis)
+                .quantity(ring == null ? 0 : ring.net)
+                .buckets(buckets)
+                .build();
+    }
+
+    private long currentBucket() {
+        return Math.floorDiv(clock.millis(), bucketMillis);
+    }
+
+    private static int valueOf(Integer quantity) {
+        return quantity == null ? 0 : quantity;
+    }
+
+    /**
+     * One security's buckets; slot {@code bucket % size} holds the bucket with that index, or a
+     * stale one that readers skip because its index no longer matches.
+     */
+    private static final class Ring {
+
+        private final long[] buckets;
+        private final long[] open;
+        private final long[] high;
+        private final long[] low;
+        private final long[] close;
+        private final int[] changes;
+
+        private long net;
+        private long latest = Long.MIN_VALUE;
+
+        Ring(int size) {
+            buckets = new long[size];
+            Arrays.fill(buckets, Long.MIN_VALUE);
+            open = new long[size];
+            high = new long[size];
+            low = new long[size];
+            close = new long[size];
+            changes = new int[size];
+        }
+
+        void record(long bucket, long quantity) {
+            // A clock step backwards lands in the latest bucket rather than overwriting newer slots
+            bucket = Math.max(bucket, latest);
+            int slot = slotOf(bucket);
+            if (buckets[slot] != bucket) {
+                buckets[slot] = bucket;
+                open[slot] = net;
+                high[slot] = net;
+                low[slot] = net;
+                changes[slot] = 0;
+            }
+            high[slot] = Math.max(high[slot], quantity);
+            low[slot] = Math.min(low[slot], quantity);
+            close[slot] = quantity;
+            changes[slot]++;
+            net = quantity;
+            latest = bucket;
+        }
+
+        int slotOf(long bucket) {
+            return (int) Math.floorMod(bucket, (long) buckets.length);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.equities.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Dense int ids for security codes.
+ */
+@Component
+public class SecurityDictionary extends CodeDictionary {
+
+    public SecurityDictionary() {
+        super("security");
+    }
+}
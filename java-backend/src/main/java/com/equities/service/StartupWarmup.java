@@ -0,0 +1,181 @@
+package com.equities.service;
+
+import com.equities.model.Transaction;
+import com.equities.repository.PositionRepository;
+import com.equities.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Warms the engine before it takes traffic. Positions, trade state (including the
+ * {@link TradeIndex}) and the security dictionary are loaded in parallel while a synthetic
+ * workload runs through the position fold to get it JIT-compiled.
+ * <p>
+ * Runs as an {@link ApplicationRunner}, so the readiness state stays REFUSING_TRAFFIC (and
+ * /actuator/health/readiness reports OUT_OF_SERVICE) until every phase has finished.
+ */
+@Component
+@Slf4j
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final int WARMUP_TRADES = 2_000;
+    private static final int WARMUP_SECURITIES = 50;
+
+    private final PositionChangePublisher positionChangePublisher;
+    private final SecurityDictionary securityDictionary;
+    private final AccountDictionary accountDictionary;
+    private final TransactionRepository transactionRepository;
+    private final PositionRepository positionRepository;
+    private final HighWaterMark highWaterMark;
+    private final TradeIndex tradeIndex;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final int jitWarmupIterations;
+
+    public StartupWarmup(PositionChangePublisher positionChangePublisher,
+                         SecurityDictionary securityDictionary,
+                         AccountDictionary accountDictionary,
+                         TransactionRepository transactionRepository,
+                         PositionRepository positionRepository,
+                         HighWaterMark highWaterMark,
+                         TradeIndex tradeIndex,
+                         PlatformTransactionManager transactionManager,
+                         @Qualifier("taskExecutor") Executor executor,
+                         MeterRegistry meterRegistry,
+                         @Value("${equities.startup.jit-warmup-iterations:200}") int jitWarmupIterations) {
+        this.positionChangePublisher = positionChangePublisher;
+        this.securityDictionary = securityDictionary;
+        this.accountDictionary = accountDictionary;
+        this.transactionRepository = transactionRepository;
+        this.positionRepository = positionRepository;
+        this.highWaterMark = highWaterMark;
+        this.tradeIndex = tradeIndex;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.jitWarmupIterations = jitWarmupIterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        log.info("Startup warm-up started, readiness is held until it completes");
+
+        CompletableFuture.allOf(
+                phase("positions", () -> readOnlyTransaction.execute(status -> positionChangePublisher.initialiseListeners())),
+                phase("securities", this::loadSecurityDictionary),
+                phase("trade-state", this::loadTradeState),
+                phase("jit", this::warmUpFold)
+        ).join();
+
+        long elapsed = System.nanoTime() - start;
+        timer("total").record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Startup warm-up completed in {} ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private CompletableFuture<Void> phase(String name, Supplier<Object> work) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            Object result = work.get();
+            long elapsed = System.nanoTime() - start;
+            timer(name).record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Startup phase '{}' completed in {} ms ({})", name, TimeUnit.NANOSECONDS.toMillis(elapsed), result);
+        }, executor);
+    }
+
+    private Timer timer(String phase) {
+        return Timer.builder("equities.startup.phase")
+                .description("Duration of startup warm-up phases")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+
+    private Object loadSecurityDictionary() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            securityDictionary.registerAll(transactionRepository.findAllSecurityCodes());
+            securityDictionary.registerAll(positionRepository.findSecurityCodesAfter("", Pageable.unpaged()));
+            accountDictionary.registerAll(transactionRepository.findAllAccounts());
+            accountDictionary.registerAll(positionRepository.findAllAccounts());
+        });
+        return securityDictionary.size() + " securities, " + accountDictionary.size() + " accounts";
+    }
+
+    private Object loadTradeState() {
+        return readOnlyTransaction.execute(status -> {
+            long lastProcessedId = highWaterMark.read().getLastProcessedTransactionId();
+            long pending = transactionRepository.countByIdGreaterThan(lastProcessedId);
+            if (pending > 0) {
+                log.warn("{} transactions after id {} are not reflected in positions yet", pending, lastProcessedId);
+            }
+            int liveTrades = tradeIndex.initialise();
+            return "last processed id " + lastProcessedId + ", " + pending + " pending, " + liveTrades + " live trades";
+        });
+    }
+
+    /**
+     * Runs the trade fold over synthetic multi-version priced trades so the hot path is compiled
+     * before the first real request: each trade's first version is folded, then replaced by
+     * the trade as a whole, the way the write path swaps a trade's effect on its cell.
+     */
+    private Object warmUpFold() {
+        List<Transaction> transactions = new ArrayList<>(WARMUP_TRADES * 2);
+        for (int i = 0; i < WARMUP_TRADES; i++) {
+            String securityCode = "WARMUP" + (i % WARMUP_SECURITIES);
+            transactions.add(warmupTransaction(i, 1, securityCode, Transaction.TransactionAction.INSERT));
+            transactions.add(warmupTransaction(i, 2, securityCode,
+                    i % 10 == 0 ? Transaction.TransactionAction.CANCEL : Transaction.TransactionAction.UPDATE));
+        }
+
+        // Private dictionaries, so synthetic codes never leak into the live ones
+        PositionKeys keys = new PositionKeys(new AccountDictionary(), new SecurityDictionary());
+        long checksum = 0;
+        for (int i = 0; i < jitWarmupIterations; i++) {
+            Map<Long, CellTotals> cells = new HashMap<>();
+            PositionFold.forEachTrade(transactions.iterator(), trade -> {
+                List<Transaction> firstVersion = trade.subList(0, 1);
+                PositionFold.foldTrade(firstVersion, cells, keys);
+                PositionFold.Effect after = PositionFold.effectOf(trade, keys);
+                cells.get(after.cell()).subtract(PositionFold.effectOf(firstVersion, keys));
+                cells.get(after.cell()).add(after);
+                PositionFold.contribution(trade);
+            });
+            checksum += cells.size();
+        }
+        return jitWarmupIterations + " iterations, checksum " + checksum;
+    }
+
+    private static Transaction warmupTransaction(int trade, int version, String securityCode,
+                                                 Transaction.TransactionAction action) {
+        return Transaction.builder()
+                .transactionId((long) trade * 2 + version)
+                .tradeId((long) trade)
+                .version(version)
+                .securityCode(securityCode)
+                .quantity(trade % 100 + version)
+                .action(action)
+                .side(trade % 2 == 0 ? Transaction.TransactionSide.BUY : Transaction.TransactionSide.SELL)
+                .price(BigDecimal.valueOf(100 + trade % 50))
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.equities.service;
+
+import com.equities.model.TradeContribution;
+import com.equities.model.Transaction;
+import com.equities.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index from security code to the live trades contributing to its positions, so a
+ * drill-down costs time proportional to that security's live trade count instead of a scan over
+ * every version of every trade.
+ * <p>
+ * The calculation engine refreshes the trades each write changes once the write commits
+ * (see {@link PositionCalculationService}); full recalculations and clears replace the index.
+ * Writes are serialised; reads are lock-free and may see a concurrent refresh half-applied.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TradeIndex {
+
+    private final TransactionRepository transactionRepository;
+    private final PositionChangePublisher positionChangePublisher;
+
+    private final Map<Long, TradeContribution> tradesById = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, TradeContribution>> tradesBySecurity = new ConcurrentHashMap<>();
+
+    /**
+     * Live trades of a security across all accounts, ordered by trade id.
+     */
+    public List<TradeContribution> tradesFor(String securityCode) {
+        Map<Long, TradeContribution> trades = tradesBySecurity.get(securityCode);
+        if (trades == null) {
+            return List.of();
+        }
+        List<TradeContribution> result = new ArrayList<>(trades.values());
+        result.sort(Comparator.comparing(TradeContribution::getTradeId));
+        return result;
+    }
+
+    public int size() {
+        return tradesById.size();
+    }
+
+    /**
+     * Builds the index from the transactions table. Called once during startup warm-up. The
+     * index is replaced once the read commits, in sequence with the writes' refreshes, as
+     * {@link PositionChangePublisher#initialiseListeners} does for the book.
+     *
+     * @return number of live trades indexed
+     */
+    @Transactional(readOnly = true)
+    public int initialise() {
+        List<TradeContribution> live = new ArrayList<>();
+        try (Stream<Transaction> transactions = transactionRepository.streamDetachedOrderByTradeIdAndVersion()) {
+            PositionFold.forEachTrade(transactions.iterator(), versions -> {
+                TradeContribution contribution = PositionFold.contribution(versions);
+                if (contribution != null) {
+                    live.add(contribution);
+                }
+            });
+        }
+        positionChangePublisher.afterCommit(() -> reset(live));
+        log.info("Trade index initialised with {} live trades", live.size());
+        return live.size();
+    }
+
+    /**
+     * Applies a write. Every trade it changed is replaced by its new state, or dropped when it is
+     * no longer live.
+     *
+     * @param changedTradeIds trades whose versions the write inserted or edited
+     * @param live            contributions of those trades that are still live
+     */
+    public synchronized void refresh(Collection<Long> changedTradeIds, Collection<TradeContribution> live) {
+        for (Long tradeId : changedTradeIds) {
+            remove(tradeId);
+        }
+        for (TradeContribution trade : live) {
+            add(trade);
+        }
+    }
+
+    public synchronized void reset(Collection<TradeContribution> live) {
+        tradesById.clear();
+        tradesBySecurity.clear();
+        for (TradeContribution trade : live) {
+            add(trade);
+        }
+    }
+
+    private void add(TradeContribution trade) {
+        remove(trade.getTradeId());
+        tradesById.put(trade.getTradeId(), trade);
+        tradesBySecurity.computeIfAbsent(trade.getSecurityCode(), key -> new ConcurrentHashMap<>())
+                .put(trade.getTradeId(), trade);
+    }
+
+    private void remove(Long tradeId) {
+        TradeContribution previous = tradesById.remove(tradeId);
+        if (previous == null) {
+            return;
+        }
+        Map<Long, TradeContribution> trades = tradesBySecurity.get(previous.getSecurityCode());
+        if (trades != null) {
+            trades.remove(tradeId);
+            if (trades.isEmpty()) {
+                tradesBySecurity.remove(previous.getSecurityCode());
+            }
+        }
+    }
+}
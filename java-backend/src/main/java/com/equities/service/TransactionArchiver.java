@@ -0,0 +1,133 @@
+package com.equities.service;
+
+import com.equities.repository.ArchivedTransactionRepository;
+import com.equities.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compaction job that moves superseded transaction versions from the hot transactions table
+ * into transactions_archive. Only rows that can no longer affect positions are moved (see
+ * {@link TransactionRepository#findSupersededTransactionIds}), so position calculation keeps
+ * reading the hot table alone while history reads merge in the archive.
+ * <p>
+ * Each batch is copied and deleted in its own transaction, keeping lock time short.
+ */
+@Component
+@Slf4j
+public class TransactionArchiver {
+
+    private final TransactionRepository transactionRepository;
+    private final ArchivedTransactionRepository archivedTransactionRepository;
+    private final HighWaterMark highWaterMark;
+    private final TransactionTemplate writeTransaction;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long intervalMs;
+
+    private final Counter archived;
+
+    private ScheduledExecutorService scheduler;
+
+    public TransactionArchiver(TransactionRepository transactionRepository,
+                               ArchivedTransactionRepository archivedTransactionRepository,
+                               HighWaterMark highWaterMark,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${equities.archive.enabled:true}") boolean enabled,
+                               @Value("${equities.archive.batch-size:1000}") int batchSize,
+                               @Value("${equities.archive.interval-ms:300000}") long intervalMs) {
+        this.transactionRepository = transactionRepository;
+        this.archivedTransactionRepository = archivedTransactionRepository;
+        this.highWaterMark = highWaterMark;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalMs = Math.max(1000, intervalMs);
+
+        this.archived = Counter.builder("equities.archive.archived")
+                .description("Superseded transaction versions moved to the archive")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TransactionArchiver");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runCompaction, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("Transaction archiver started (batch size {}, interval {} ms)", batchSize, intervalMs);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Archives every superseded version that has been processed, batch by batch.
+     *
+     * @return number of versions moved to the archive
+     */
+    public synchronized long compact() {
+        long start = System.currentTimeMillis();
+        long total = 0;
+        int moved;
+        do {
+            Integer batch = writeTransaction.execute(status -> compactBatch());
+            moved = batch == null ? 0 : batch;
+            total += moved;
+        } while (moved == batchSize);
+
+        archived.increment(total);
+        if (total > 0) {
+            log.info("Archived {} superseded transaction versions in {} ms", total, System.currentTimeMillis() - start);
+        }
+        return total;
+    }
+
+    private int compactBatch() {
+        long lastProcessedId = highWaterMark.read().getLastProcessedTransactionId();
+        List<Long> transactionIds = transactionRepository.findSupersededTransactionIds(
+                lastProcessedId, PageRequest.of(0, batchSize));
+        if (transactionIds.isEmpty()) {
+            return 0;
+        }
+        archivedTransactionRepository.copyFromTransactions(transactionIds, LocalDateTime.now());
+        transactionRepository.deleteByTransactionIdIn(transactionIds);
+        return transactionIds.size();
+    }
+
+    private void runCompaction() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.error("Transaction archive compaction failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for single-transaction posts. When enabled, concurrent calls to {@link #process}
+ * are queued and a dispatcher thread drains them into batches of up to max-batch-size, waiting at
+ * most max-wait-ms after the first arrival. Each batch is written with one commit and one delta
+ * recalculation through {@link PositionCalculationService#processBulkTransactions}.
+ * <p>
+ * Each caller gets what {@link PositionCalculationService#processTransaction} returns: the
+ * whole book once the commit carrying its transaction has reached the read model. Callers of
+ * one batch share that commit, and so the same book, which holds each of their writes. If a
+ * batch fails, its transactions are retried one at a time, so each caller still gets the
+ * result or error its own transaction would have produced. When disabled, calls go straight to
+ * {@link PositionCalculationService#processTransaction}.
+ * <p>
+ * Callers come through the {@link IngestLimiter} and hold a permit while they wait, so a batch
+ * never holds more than {@code equities.ingest.max-in-flight} transactions; max-batch-size is
+ * capped at that.
+ */
+@Component
+@Slf4j
+public class TransactionBatcher {
+
+    private final PositionCalculationService positionCalculationService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchSize;
+    private final Timer batchWait;
+    private final Counter fallbacks;
+
+    private volatile Thread dispatcher;
+
+    public TransactionBatcher(PositionCalculationService positionCalculationService,
+                              IngestLimiter ingestLimiter,
+                              MeterRegistry meterRegistry,
+                              @Value("${equities.ingest.batching.enabled:false}") boolean enabled,
+                              @Value("${equities.ingest.batching.max-batch-size:32}") int maxBatchSize,
+                              @Value("${equities.ingest.batching.max-wait-ms:5}") long maxWaitMs,
+                              @Value("${equities.ingest.max-in-flight:32}") int maxInFlight) {
+        this.positionCalculationService = positionCalculationService;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, maxInFlight));
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+
+        this.batchSize = DistributionSummary.builder("equities.ingest.batch.size")
+                .description("Transactions committed per group-commit batch")
+                .register(meterRegistry);
+        this.batchWait = Timer.builder("equities.ingest.batch.wait")
+                .description("Time a transaction waited in the queue before its batch started")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("equities.ingest.batch.fallbacks")
+                .description("Batches that failed and were retried one transaction at a time")
+                .register(meterRegistry);
+
+        if (enabled) {
+            ingestLimiter.reportQueue(queue::size);
+            dispatcher = new Thread(this::dispatch, "TransactionBatcher");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+            log.info("Transaction group commit enabled (max batch size {}, max wait {} ms)", this.maxBatchSize, maxWaitMs);
+        }
+    }
+
+    public List<Position> process(Transaction transaction) {
+        if (!enabled) {
+            return positionCalculationService.processTransaction(transaction);
+        }
+        Pending pending = new Pending(transaction, System.nanoTime(), new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = dispatcher;
+        dispatcher = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        List<Pending> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(p -> p.result().completeExceptionally(new IllegalStateException("Transaction batcher stopped")));
+    }
+
+    private void dispatch() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (dispatcher != null) {
+            try {
+                Pending first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedAt() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.result().completeExceptionally(new IllegalStateException("Transaction batcher stopped")));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        long start = System.nanoTime();
+        batchSize.record(batch.size());
+        for (Pending pending : batch) {
+            batchWait.record(start - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+
+        try {
+            List<Position> book = positionCalculationService.processBulkTransactions(
+                    batch.stream().map(Pending::transaction).toList());
+            batch.forEach(p -> p.result().complete(book));
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            fallbacks.increment();
+            log.debug("Batch of {} failed ({}), retrying individually", batch.size(), e.getMessage());
+        }
+
+        for (Pending pending : batch) {
+            try {
+                pending.result().complete(positionCalculationService.processTransaction(pending.transaction()));
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private record Pending(Transaction transaction, long enqueuedAt, CompletableFuture<List<Position>> result) {
+    }
+}
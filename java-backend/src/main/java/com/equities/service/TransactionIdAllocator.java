@@ -0,0 +1,61 @@
+package com.equities.service;
+
+import com.equities.repository.ArchivedTransactionRepository;
+import com.equities.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out business transaction ids to concurrent writers. Reading MAX + 1 inside each write
+ * gave two uncommitted writers the same id; here the maximum business id is read once, above
+ * both the hot and the archive table, and every allocation after that is an atomic increment. Ids from a
+ * rolled back write are not reused, so the sequence can have gaps.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionIdAllocator {
+
+    private static final long UNSEEDED = -1;
+
+    private final TransactionRepository transactionRepository;
+    private final ArchivedTransactionRepository archivedTransactionRepository;
+
+    private final AtomicLong last = new AtomicLong(UNSEEDED);
+
+    public long next() {
+        seedIfNeeded();
+        return last.incrementAndGet();
+    }
+
+    /**
+     * Records an id chosen by the caller, so later allocations stay above it.
+     */
+    public long observe(long transactionId) {
+        seedIfNeeded();
+        last.accumulateAndGet(transactionId, Math::max);
+        return transactionId;
+    }
+
+    /**
+     * Forgets the allocated range, e.g. after the tables were cleared; the next allocation
+     * reads the maximum again.
+     */
+    public void reset() {
+        last.set(UNSEEDED);
+    }
+
+    private void seedIfNeeded() {
+        if (last.get() != UNSEEDED) {
+            return;
+        }
+        synchronized (this) {
+            if (last.get() == UNSEEDED) {
+                long hotMax = transactionRepository.findMaxBusinessTransactionId().orElse(0L);
+                long archivedMax = archivedTransactionRepository.findMaxTransactionId().orElse(0L);
+                last.set(Math.max(hotMax, archivedMax));
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.equities.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs a write in its own transaction and re-runs it, from a fresh read, when it lost a race
+ * with a concurrent writer of the same rows.
+ * <p>
+ * A conflict is a failed {@code @Version} check, a lock wait that ended in a deadlock or timeout,
+ * or two writers creating the same position or processing state row. Any other failure is
+ * rethrown at once. Attempts are bounded by {@code equities.write.retry.max-attempts} with a short
+ * randomised backoff. A write that joins a caller's transaction runs once: the conflict rolls back
+ * the whole caller transaction, so only the caller can retry it.
+ * <p>
+ * Writes stay optimistic for the first {@code equities.write.retry.lock-after} attempts. Later
+ * attempts are flagged by {@link #isLockingAttempt()}, and the position engine then locks the
+ * rows it reads, so a write to hot cells waits for the current holder rather than losing to it
+ * again. Disjoint writes never get that far and never take the locks.
+ */
+@Component
+@Slf4j
+public class WriteConflictRetry {
+
+    /** Unique keys whose violation means another writer created the row first */
+    private static final List<String> CONFLICT_KEYS = List.of("UK_POSITIONS_ACCOUNT_SECURITY", "UK_PROCESSING_STATE_KEY");
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final int lockAfter;
+    private final ConcurrentHashMap<String, Meters> meters = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> lockingAttempt = ThreadLocal.withInitial(() -> false);
+
+    public WriteConflictRetry(TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${equities.write.retry.max-attempts:8}") int maxAttempts,
+                              @Value("${equities.write.retry.backoff-ms:2}") long backoffMillis,
+                              @Value("${equities.write.retry.lock-after:2}") int lockAfter) {
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(0, backoffMillis);
+        this.lockAfter = Math.max(0, lockAfter);
+    }
+
+    /**
+     * @param operation metric tag naming the write
+     * @param write     builds its own state from the database on every call; it must not reuse
+     *                  entities or generated ids from a rolled back attempt
+     */
+    public <T> T execute(String operation, Supplier<T> write) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return write.get();
+        }
+        Meters operationMeters = meters.computeIfAbsent(operation, this::register);
+        for (int attempt = 1; ; attempt++) {
+            lockingAttempt.set(attempt > lockAfter);
+            try {
+                return transactionTemplate.execute(status -> write.get());
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                operationMeters.conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    operationMeters.exhausted.increment();
+                    log.warn("{} write still conflicting after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                operationMeters.retries.increment();
+                log.debug("{} write conflicted on attempt {}, retrying: {}", operation, attempt, e.getMessage());
+                backoff(attempt);
+            } finally {
+                lockingAttempt.remove();
+            }
+        }
+    }
+
+    /**
+     * As {@link #execute(String, Supplier)}, for a write that returns nothing.
+     */
+    public void execute(String operation, Runnable write) {
+        execute(operation, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    /**
+     * Whether the write running on this thread has conflicted often enough to lock the rows it reads.
+     */
+    public boolean isLockingAttempt() {
+        return lockingAttempt.get();
+    }
+
+    static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof PessimisticLockException
+                    || cause instanceof StaleStateException) {
+                return true;
+            }
+            if (cause instanceof DataIntegrityViolationException && cause.getMessage() != null) {
+                String message = cause.getMessage().toUpperCase(Locale.ROOT);
+                if (CONFLICT_KEYS.stream().anyMatch(message::contains)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void backoff(int attempt) {
+        if (backoffMillis == 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off a conflicting write", e);
+        }
+    }
+
+    private Meters register(String operation) {
+        return new Meters(
+                Counter.builder("equities.write.conflicts")
+                        .description("Writes that failed on a concurrent change to the same rows")
+                        .tag("operation", operation)
+                        .register(meterRegistry),
+                Counter.builder("equities.write.retries")
+                        .description("Conflicting writes re-run from a fresh read")
+                        .tag("operation", operation)
+                        .register(meterRegistry),
+                Counter.builder("equities.write.retries.exhausted")
+                        .description("Conflicting writes that gave up after the maximum number of attempts")
+                        .tag("operation", operation)
+                        .register(meterRegistry));
+    }
+
+    private record Meters(Counter conflicts, Counter retries, Counter exhausted) {
+    }
+}
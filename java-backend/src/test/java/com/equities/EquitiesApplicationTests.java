@@ -1,13 +1,33 @@
 package com.equities;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 @SpringBootTest
 class EquitiesApplicationTests {
 
+	@Autowired
+	private ApplicationAvailability applicationAvailability;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void readinessAcceptsTrafficAfterStartupWarmup() {
+		assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+		for (String phase : new String[] {"positions", "securities", "trade-state", "jit", "total"}) {
+			assertEquals(1, meterRegistry.get("equities.startup.phase").tag("phase", phase).timer().count());
+		}
+	}
+
 }
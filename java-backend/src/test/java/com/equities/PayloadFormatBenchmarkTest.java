@@ -0,0 +1,85 @@
+package com.equities;
+
+import com.equities.model.Transaction;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares payload size and encode/decode time of JSON, CBOR and Smile for a bulk
+ * transaction list. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class PayloadFormatBenchmarkTest {
+
+    private static final int TRANSACTIONS = 100_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Test
+    void comparePayloadFormats() throws Exception {
+        List<Transaction> transactions = new ArrayList<>(TRANSACTIONS);
+        for (int i = 1; i <= TRANSACTIONS; i++) {
+            transactions.add(Transaction.builder()
+                    .transactionId((long) i)
+                    .tradeId((long) (i / 2 + 1))
+                    .version(1 + i % 2)
+                    .securityCode("SEC" + (i % 500))
+                    .quantity(i % 1000)
+                    .action(i % 2 == 0 ? Transaction.TransactionAction.INSERT : Transaction.TransactionAction.UPDATE)
+                    .side(i % 3 == 0 ? Transaction.TransactionSide.SELL : Transaction.TransactionSide.BUY)
+                    .build());
+        }
+
+        System.out.printf("%-6s %12s %12s %10s %10s%n", "format", "bytes", "gzip bytes", "encode ms", "decode ms");
+        measure("json", Jackson2ObjectMapperBuilder.json().build(), transactions);
+        measure("cbor", Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build(), transactions);
+        measure("smile", Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build(), transactions);
+    }
+
+    private static void measure(String format, ObjectMapper mapper, List<Transaction> transactions) throws Exception {
+        TypeReference<List<Transaction>> type = new TypeReference<>() {
+        };
+        byte[] payload = null;
+        List<Transaction> decoded = null;
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            payload = mapper.writeValueAsBytes(transactions);
+            decoded = mapper.readValue(payload, type);
+        }
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            payload = mapper.writeValueAsBytes(transactions);
+            long encoded = System.nanoTime();
+            decoded = mapper.readValue(payload, type);
+            decodeNanos += System.nanoTime() - encoded;
+            encodeNanos += encoded - start;
+        }
+
+        assertEquals(transactions, decoded);
+        System.out.printf("%-6s %12d %12d %10.1f %10.1f%n", format, payload.length, gzipSize(payload),
+                encodeNanos / 1e6 / MEASURED_ROUNDS, decodeNanos / 1e6 / MEASURED_ROUNDS);
+    }
+
+    private static int gzipSize(byte[] payload) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.size();
+    }
+}
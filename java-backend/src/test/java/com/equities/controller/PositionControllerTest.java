@@ -0,0 +1,85 @@
+package com.equities.controller;
+
+import com.equities.model.Position;
+import com.equities.model.Transaction;
+import com.equities.service.PositionCalculationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: each post commits on its own thread, as a request would.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PositionControllerTest {
+
+    private static final int WRITERS = 8;
+    private static final int POSTS_PER_WRITER = 10;
+
+    @Autowired
+    private PositionController positionController;
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+    }
+
+    @Test
+    void testConcurrentPostsSeeTheirOwnWrites() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> results = new ArrayList<>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    List<String> missing = new ArrayList<>();
+                    for (int i = 0; i < POSTS_PER_WRITER; i++) {
+                        long tradeId = writer * 1000L + i + 1;
+                        String securityCode = "RYW-" + writer + "-" + i;
+                        List<Position> book = positionController.processTransaction(insert(tradeId, securityCode)).getBody();
+                        if (book == null || book.stream().noneMatch(p -> securityCode.equals(p.getSecurityCode()))) {
+                            missing.add(securityCode);
+                        }
+                    }
+                    return missing;
+                }));
+            }
+            start.countDown();
+
+            for (Future<List<String>> result : results) {
+                assertEquals(List.of(), result.get(1, TimeUnit.MINUTES), "Responses missing their own write");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Transaction insert(long tradeId, String securityCode) {
+        return Transaction.builder()
+                .tradeId(tradeId)
+                .version(1)
+                .securityCode(securityCode)
+                .quantity(10)
+                .action(Transaction.TransactionAction.INSERT)
+                .side(Transaction.TransactionSide.BUY)
+                .build();
+    }
+}
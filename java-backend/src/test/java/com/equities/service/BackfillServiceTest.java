@@ -0,0 +1,166 @@
+package com.equities.service;
+
+import com.equities.model.BackfillResult;
+import com.equities.model.Position;
+import com.equities.model.Transaction;
+import com.equities.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: backfill chunks commit on their own, so each test clears the book itself.
+ */
+@SpringBootTest(properties = "equities.backfill.chunk-size=3")
+@ActiveProfiles("test")
+class BackfillServiceTest {
+
+    @Autowired
+    private BackfillService backfillService;
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+    }
+
+    @AfterEach
+    void tearDown() {
+        positionCalculationService.clearAllData();
+    }
+
+    @Test
+    void testBackfillLoadsExportFormatAndRecalculatesOnce() throws IOException {
+        Path file = tempDir.resolve("transactions.csv");
+        Files.writeString(file, """
+                transaction_id,trade_id,version,account,security_code,quantity,action,side
+                1,1,1,ACC1,REL,50,INSERT,BUY
+                2,2,1,ACC1,ITC,40,INSERT,SELL
+                3,3,1,ACC2,INF,70,INSERT,BUY
+                4,1,2,ACC1,REL,60,UPDATE,BUY
+                5,2,2,ACC1,ITC,30,CANCEL,BUY
+                6,4,1,ACC2,INF,20,INSERT,SELL
+                """);
+
+        BackfillResult result = backfillService.backfill(file);
+
+        assertEquals(6, result.getRowsLoaded());
+        assertEquals(6, transactionRepository.count());
+        assertEquals(Map.of("ACC1/REL", 60, "ACC1/ITC", 0, "ACC2/INF", 50), positionsByCell());
+        assertEquals(transactionRepository.findMaxTransactionId().orElseThrow(), result.getLastProcessedTransactionId());
+        assertEquals(result.getLastProcessedTransactionId(),
+                positionCalculationService.getProcessingState().getLastProcessedTransactionId());
+
+        // Live ingest continues from the backfilled state with a delta
+        positionCalculationService.processTransaction(Transaction.builder()
+                .tradeId(5L).version(1).account("ACC2").securityCode("INF").quantity(5)
+                .action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build());
+        assertEquals(55, positionsByCell().get("ACC2/INF"));
+    }
+
+    @Test
+    void testBackfillReadsGzipAndFillsOptionalColumns() throws IOException {
+        Path file = tempDir.resolve("history.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write("side,action,quantity,security_code,version,trade_id\n");
+            writer.write("BUY,INSERT,10,REL,1,1\n");
+            writer.write("SELL,INSERT,4,REL,1,2\n");
+        }
+
+        BackfillResult result = backfillService.backfill(file);
+
+        assertEquals(2, result.getRowsLoaded());
+        assertEquals(Map.of("DEFAULT/REL", 6), positionsByCell());
+        List<Long> transactionIds = positionCalculationService.getAllTransactions().stream()
+                .map(Transaction::getTransactionId)
+                .toList();
+        assertEquals(List.of(1L, 2L), transactionIds);
+    }
+
+    @Test
+    void testMalformedRowIsReportedWithLineNumber() throws IOException {
+        Path file = tempDir.resolve("broken.csv");
+        Files.writeString(file, """
+                trade_id,version,security_code,quantity,action,side
+                1,1,REL,50,INSERT,BUY
+                2,1,REL,ten,INSERT,BUY
+                """);
+
+        BackfillException e = assertThrows(BackfillException.class, () -> backfillService.backfill(file));
+        assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+    }
+
+    @Test
+    void testQuotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        Path file = tempDir.resolve("quoted.csv");
+        Files.writeString(file, """
+                trade_id,version,"account",security_code,quantity,action,side
+                1,1,"FUND, A",REL,50,INSERT,BUY
+                2,1,"FUND ""B""\",REL,20,INSERT,BUY
+                3,1,"FUND
+                C",REL,10,INSERT,SELL
+                """);
+
+        BackfillResult result = backfillService.backfill(file);
+
+        assertEquals(3, result.getRowsLoaded());
+        assertEquals(Map.of("FUND, A/REL", 50, "FUND \"B\"/REL", 20, "FUND\nC/REL", -10), positionsByCell());
+    }
+
+    @Test
+    void testRowWithWrongFieldCountIsRejectedWithLineNumber() throws IOException {
+        Path file = tempDir.resolve("short.csv");
+        Files.writeString(file, """
+                trade_id,version,account,security_code,quantity,action,side
+                1,1,"FUND
+                A",REL,50,INSERT,BUY
+                2,1,FUND, A,REL,20,INSERT,BUY
+                """);
+
+        BackfillException e = assertThrows(BackfillException.class, () -> backfillService.backfill(file));
+        assertTrue(e.getMessage().contains("line 4"), e.getMessage());
+        assertTrue(e.getMessage().contains("expected 7 fields, found 8"), e.getMessage());
+    }
+
+    @Test
+    void testMissingRequiredColumnIsRejected() throws IOException {
+        Path file = tempDir.resolve("no-side.csv");
+        Files.writeString(file, "trade_id,version,security_code,quantity,action\n1,1,REL,50,INSERT\n");
+
+        BackfillException e = assertThrows(BackfillException.class, () -> backfillService.backfill(file));
+        assertTrue(e.getMessage().contains("side"), e.getMessage());
+        assertEquals(0, transactionRepository.count());
+    }
+
+    private Map<String, Integer> positionsByCell() {
+        return positionCalculationService.getAllPositions().stream()
+                .collect(Collectors.toMap(p -> p.getAccount() + "/" + p.getSecurityCode(), Position::getQuantity));
+    }
+}
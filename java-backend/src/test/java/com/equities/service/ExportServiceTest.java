@@ -0,0 +1,89 @@
+package com.equities.service;
+
+import com.equities.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ExportServiceTest {
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+        positionCalculationService.processBulkTransactions(List.of(
+                Transaction.builder().tradeId(1L).version(1).securityCode("REL").quantity(50).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(2L).version(1).securityCode("ITC").quantity(40).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.SELL).build(),
+                Transaction.builder().tradeId(1L).version(2).securityCode("REL").quantity(60).action(Transaction.TransactionAction.UPDATE).side(Transaction.TransactionSide.BUY).price(new BigDecimal("101.5")).build()
+        ));
+    }
+
+    @Test
+    void testExportTransactionsInRange() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.exportTransactions(1L, 3L, out);
+
+        assertEquals(2, rows);
+        assertEquals("""
+                transaction_id,trade_id,version,account,security_code,quantity,action,side,price
+                2,2,1,DEFAULT,ITC,40,INSERT,SELL,
+                3,1,2,DEFAULT,REL,60,UPDATE,BUY,101.500000
+                """, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    void testExportPositions() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.exportPositions(out);
+
+        assertEquals(2, rows);
+        assertEquals("""
+                account,security_code,quantity,notional,vwap
+                DEFAULT,ITC,-40,,
+                DEFAULT,REL,60,6090.000000,101.500000
+                """, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    void testExportQuotesAccountsAndSecurityCodes() throws IOException {
+        positionCalculationService.processBulkTransactions(List.of(
+                Transaction.builder().tradeId(3L).version(1).account("DESK \"A\", LDN").securityCode("TCS").quantity(10).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build()
+        ));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportPositions(out);
+
+        assertTrue(gunzip(out.toByteArray()).contains("""
+                "DESK ""A"", LDN",TCS,10,,
+                """));
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.equities.service;
+
+import com.equities.model.ExposureSummary;
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExposureTrackerTest {
+
+    private ExposureTracker exposureTracker;
+
+    @BeforeEach
+    void setUp() {
+        exposureTracker = new ExposureTracker(2);
+        exposureTracker.onPositionsReset(List.of(position("REL", 60), position("ITC", 0), position("INF", 50)));
+    }
+
+    @Test
+    void testSummaryAfterReset() {
+        ExposureSummary summary = exposureTracker.getSummary();
+
+        assertEquals(110, summary.getGrossLong());
+        assertEquals(0, summary.getGrossShort());
+        assertEquals(110, summary.getNetExposure());
+        assertEquals(3, summary.getSecurityCount());
+        assertEquals(2, summary.getLongCount());
+        assertEquals(2, summary.getTopConcentrations().size());
+        assertEquals("REL", summary.getTopConcentrations().get(0).getSecurityCode());
+        assertEquals("INF", summary.getTopConcentrations().get(1).getSecurityCode());
+    }
+
+    @Test
+    void testIncrementalChangesReorderTopConcentrations() {
+        exposureTracker.onPositionsChanged(List.of(
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "ITC", -100),
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "REL", 10),
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "INF", null)
+        ));
+
+        ExposureSummary summary = exposureTracker.getSummary(5);
+
+        assertEquals(10, summary.getGrossLong());
+        assertEquals(100, summary.getGrossShort());
+        assertEquals(-90, summary.getNetExposure());
+        assertEquals(2, summary.getSecurityCount());
+        assertEquals(1, summary.getShortCount());
+        assertEquals(2, summary.getTopConcentrations().size());
+        assertEquals("ITC", summary.getTopConcentrations().get(0).getSecurityCode());
+        assertEquals(100.0 / 110.0, summary.getTopConcentrations().get(0).getShare(), 1e-9);
+    }
+
+    @Test
+    void testSameSecurityInTwoAccountsIsTrackedSeparately() {
+        exposureTracker.onPositionsChanged(List.of(new PositionChange("ACC-2", "REL", -70)));
+
+        ExposureSummary summary = exposureTracker.getSummary();
+
+        assertEquals(4, summary.getSecurityCount());
+        assertEquals(110, summary.getGrossLong());
+        assertEquals(70, summary.getGrossShort());
+        assertEquals("ACC-2", summary.getTopConcentrations().get(0).getAccount());
+        assertEquals("REL", summary.getTopConcentrations().get(0).getSecurityCode());
+    }
+
+    private static Position position(String securityCode, int quantity) {
+        return Position.builder().securityCode(securityCode).quantity(quantity).build();
+    }
+}
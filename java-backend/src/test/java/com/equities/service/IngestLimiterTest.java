@@ -0,0 +1,110 @@
+package com.equities.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestLimiterTest {
+
+    @Test
+    void testRejectsWhenSaturated() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        IngestLimiter limiter = new IngestLimiter(1, 1, false, 250, 3, registry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<String> inFlight = executor.submit(() -> limiter.execute(() -> {
+                started.countDown();
+                await(release);
+                return "done";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            IngestRejectedException exception = assertThrows(IngestRejectedException.class,
+                    () -> limiter.execute(() -> "rejected"));
+            assertEquals(3, exception.getRetryAfterSeconds());
+            assertEquals(1.0, registry.get("equities.ingest.rejected").counter().count());
+            assertEquals(1.0, registry.get("equities.ingest.in_flight").gauge().value());
+            assertEquals(0.0, registry.get("equities.ingest.queue.depth").gauge().value());
+
+            release.countDown();
+            assertEquals("done", inFlight.get(5, TimeUnit.SECONDS));
+            assertEquals("accepted", limiter.execute(() -> "accepted"));
+            assertEquals(0, limiter.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAdaptiveLimitFollowsLatency() {
+        IngestLimiter limiter = new IngestLimiter(10, 2, true, 5, 1, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 20; i++) {
+            limiter.execute(() -> {
+                sleep(20);
+                return null;
+            });
+        }
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 40; i++) {
+            limiter.execute(() -> null);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testSlowWritesAlreadyInFlightDecreaseTheLimitOnce() throws Exception {
+        IngestLimiter limiter = new IngestLimiter(10, 2, true, 5, 1, new SimpleMeterRegistry());
+        int writes = 8;
+        CountDownLatch started = new CountDownLatch(writes);
+        ExecutorService executor = Executors.newFixedThreadPool(writes);
+
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < writes; i++) {
+                results.add(executor.submit(() -> limiter.execute(() -> {
+                    started.countDown();
+                    await(started);
+                    sleep(20);
+                    return null;
+                })));
+            }
+            for (Future<Object> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(9, limiter.getLimit());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.equities.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntMapTest {
+
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    @Test
+    void testPutGetAndRemove() {
+        LongIntMap map = new LongIntMap();
+        long cell = PositionKeys.pack(0, 0);
+
+        assertEquals(MISSING, map.put(cell, 10, MISSING));
+        assertEquals(10, map.put(cell, 20, MISSING));
+        assertEquals(20, map.get(cell, MISSING));
+        assertEquals(20, map.remove(cell, MISSING));
+        assertEquals(MISSING, map.get(cell, MISSING));
+        assertEquals(MISSING, map.remove(cell, MISSING));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomChurn() {
+        LongIntMap map = new LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long cell = PositionKeys.pack(random.nextInt(50), random.nextInt(200));
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(cell);
+                assertEquals(removed == null ? MISSING : removed, map.remove(cell, MISSING));
+            } else {
+                int value = random.nextInt();
+                Integer replaced = expected.put(cell, value);
+                assertEquals(replaced == null ? MISSING : replaced, map.put(cell, value, MISSING));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int account = 0; account < 50; account++) {
+            for (int security = 0; security < 200; security++) {
+                long cell = PositionKeys.pack(account, security);
+                assertEquals(expected.getOrDefault(cell, MISSING), map.get(cell, MISSING));
+            }
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(MISSING, map.get(PositionKeys.pack(1, 1), MISSING));
+    }
+}
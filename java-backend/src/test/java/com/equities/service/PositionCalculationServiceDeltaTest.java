@@ -113,4 +113,102 @@ class PositionCalculationServiceDeltaTest {
         assertEquals(1, positions.size());
         assertTrue(positions.stream().anyMatch(p -> p.getSecurityCode().equals("REL") && p.getQuantity() == 50));
     }
+
+    @Test
+    void testBulkProcessing_MixedInsertsAndEdits() {
+        List<Transaction> initialTransactions = List.of(
+                Transaction.builder().tradeId(1L).version(1).securityCode("REL").quantity(50).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(2L).version(1).securityCode("ITC").quantity(40).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.SELL).build()
+        );
+        positionCalculationService.processBulkTransactions(initialTransactions);
+
+        Transaction relTrade = transactionRepository.findLatestTransactionByTradeId(1L).orElseThrow();
+        Transaction itcTrade = transactionRepository.findLatestTransactionByTradeId(2L).orElseThrow();
+
+        // Edit both trades (moving trade 2 to a new security) and insert a new one in a single batch
+        List<Transaction> mixedTransactions = List.of(
+                Transaction.builder().transactionId(relTrade.getTransactionId()).tradeId(1L).version(1).securityCode("REL").quantity(75).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().transactionId(itcTrade.getTransactionId()).tradeId(2L).version(1).securityCode("INF").quantity(40).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.SELL).build(),
+                Transaction.builder().tradeId(3L).version(1).securityCode("REL").quantity(5).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.SELL).build()
+        );
+
+        List<Position> positions = positionCalculationService.processBulkTransactions(mixedTransactions);
+
+        assertTrue(positions.stream().anyMatch(p -> p.getSecurityCode().equals("REL") && p.getQuantity() == 70));
+        assertTrue(positions.stream().anyMatch(p -> p.getSecurityCode().equals("INF") && p.getQuantity() == -40));
+        assertTrue(positions.stream().noneMatch(p -> p.getSecurityCode().equals("ITC")));
+        assertEquals(3, transactionRepository.count());
+    }
+
+    @Test
+    void testBulkProcessing_EditOfNonLatestVersionRejected() {
+        List<Transaction> initialTransactions = List.of(
+                Transaction.builder().tradeId(1L).version(1).securityCode("REL").quantity(50).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(1L).version(2).securityCode("REL").quantity(60).action(Transaction.TransactionAction.UPDATE).side(Transaction.TransactionSide.BUY).build()
+        );
+        positionCalculationService.processBulkTransactions(initialTransactions);
+
+        Transaction firstVersion = transactionRepository.findByTradeIdAndVersion(1L, 1).orElseThrow();
+        List<Transaction> edits = List.of(
+                Transaction.builder().transactionId(firstVersion.getTransactionId()).tradeId(1L).version(1).securityCode("REL").quantity(100).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build()
+        );
+
+        TransactionEditException exception = assertThrows(TransactionEditException.class,
+                () -> positionCalculationService.processBulkTransactions(edits));
+        assertTrue(exception.getMessage().contains("Only the latest transaction version"));
+    }
+
+    @Test
+    void testAccountsKeepSeparatePositionsInTheSameSecurity() {
+        List<Position> positions = positionCalculationService.processBulkTransactions(List.of(
+                Transaction.builder().tradeId(1L).version(1).account("ACC-1").securityCode("REL").quantity(50).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(2L).version(1).account("ACC-2").securityCode("REL").quantity(30).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.SELL).build()
+        ));
+
+        assertEquals(2, positions.size());
+        assertEquals("ACC-1", positions.get(0).getAccount());
+        assertEquals(50, positions.get(0).getQuantity());
+        assertEquals("ACC-2", positions.get(1).getAccount());
+        assertEquals(-30, positions.get(1).getQuantity());
+    }
+
+    @Test
+    void testNewVersionMovingTradeToAnotherAccountUpdatesBothPositions() {
+        positionCalculationService.processBulkTransactions(List.of(
+                Transaction.builder().tradeId(1L).version(1).account("ACC-1").securityCode("REL").quantity(50).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(2L).version(1).account("ACC-1").securityCode("REL").quantity(10).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build()
+        ));
+
+        List<Position> positions = positionCalculationService.processTransaction(
+                Transaction.builder().tradeId(1L).version(2).account("ACC-2").securityCode("REL").quantity(50).action(Transaction.TransactionAction.UPDATE).side(Transaction.TransactionSide.BUY).build());
+
+        assertEquals(2, positions.size());
+        assertEquals(10, positions.get(0).getQuantity());
+        assertEquals("ACC-2", positions.get(1).getAccount());
+        assertEquals(50, positions.get(1).getQuantity());
+        assertEquals(toQuantities(positionCalculationService.forceFullRecalculation()), toQuantities(positions));
+    }
+
+    @Test
+    void testCellWithoutTradesHasNoRow() {
+        positionCalculationService.processTransaction(
+                Transaction.builder().tradeId(1L).version(1).securityCode("REL").quantity(50).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build());
+        positionCalculationService.processTransaction(
+                Transaction.builder().tradeId(1L).version(2).securityCode("INF").quantity(50).action(Transaction.TransactionAction.UPDATE).side(Transaction.TransactionSide.BUY).build());
+        // Recalculates REL again, as the cell of an earlier version, where nothing is booked any more
+        positionCalculationService.processTransaction(
+                Transaction.builder().tradeId(1L).version(3).securityCode("INF").quantity(60).action(Transaction.TransactionAction.UPDATE).side(Transaction.TransactionSide.BUY).build());
+
+        List<Position> rows = positionRepository.findAll();
+        assertEquals(1, rows.size());
+        assertEquals("INF", rows.get(0).getSecurityCode());
+        assertEquals(60, rows.get(0).getQuantity());
+    }
+
+    private static List<String> toQuantities(List<Position> positions) {
+        return positions.stream()
+                .filter(p -> p.getQuantity() != 0)
+                .map(p -> p.getAccount() + "/" + p.getSecurityCode() + "=" + p.getQuantity())
+                .toList();
+    }
 }
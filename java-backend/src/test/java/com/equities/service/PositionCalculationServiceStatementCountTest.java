@@ -0,0 +1,179 @@
+package com.equities.service;
+
+import com.equities.model.Transaction;
+import com.equities.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statement-count regression harness. Every public {@link PositionCalculationService} operation is
+ * run against books of increasing size with Hibernate statistics enabled, and the JDBC statement,
+ * entity/collection fetch and flush counts must not grow with the amount of data already stored.
+ * A failure here usually means a per-row save, delete or lookup crept into a code path.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Transactional
+class PositionCalculationServiceStatementCountTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionCalculationServiceStatementCountTest.class);
+
+    private static final int[] DATA_SIZES = {10, 50, 250};
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void testProcessNewTransaction() {
+        assertConstant("processTransaction(insert)", trades -> positionCalculationService.processTransaction(
+                transaction(trades + 1L, 1, "ACC-1", "SEC1", 25, Transaction.TransactionAction.INSERT)));
+    }
+
+    @Test
+    void testProcessTransactionEdit() {
+        assertConstant("processTransaction(edit)", trades -> {
+            Transaction latest = transactionRepository.findLatestTransactionByTradeId(1L).orElseThrow();
+            Transaction edit = transaction(1L, latest.getVersion(), "ACC-1", "SEC2", 30, latest.getAction());
+            edit.setTransactionId(latest.getTransactionId());
+            return edit;
+        }, positionCalculationService::processTransaction);
+    }
+
+    @Test
+    void testProcessBulkTransactions() {
+        assertConstant("processBulkTransactions", trades -> {
+            List<Transaction> batch = new ArrayList<>();
+            for (int i = 1; i <= 10; i++) {
+                batch.add(transaction(trades + i, 1, "ACC-" + (i % 2), "SEC" + (i % 3), i, Transaction.TransactionAction.INSERT));
+            }
+            positionCalculationService.processBulkTransactions(batch);
+        });
+    }
+
+    @Test
+    void testReads() {
+        assertConstant("getAllPositions", trades -> positionCalculationService.getAllPositions());
+        assertConstant("getAllTransactions", trades -> positionCalculationService.getAllTransactions());
+        assertConstant("getProcessingState", trades -> positionCalculationService.getProcessingState());
+    }
+
+    @Test
+    void testForceFullRecalculation() {
+        assertConstant("forceFullRecalculation", trades -> positionCalculationService.forceFullRecalculation());
+    }
+
+    @Test
+    void testClearAndLoadSampleData() {
+        assertConstant("clearAllData", trades -> positionCalculationService.clearAllData());
+        assertConstant("loadSampleData", trades -> positionCalculationService.loadSampleData());
+    }
+
+    private void assertConstant(String operation, Consumer<Long> action) {
+        assertConstant(operation, trades -> trades, trades -> action.accept(trades));
+    }
+
+    /**
+     * Seeds a book of each size, prepares the operation's input outside the measurement,
+     * then runs it with fresh statistics and an empty persistence context.
+     */
+    private <T> void assertConstant(String operation, java.util.function.Function<Long, T> prepare, Consumer<T> action) {
+        Map<Integer, Counts> countsBySize = new LinkedHashMap<>();
+        for (int trades : DATA_SIZES) {
+            seed(trades);
+            T input = prepare.apply((long) trades);
+            entityManager.flush();
+            entityManager.clear();
+
+            statistics.clear();
+            action.accept(input);
+            entityManager.flush();
+            countsBySize.put(trades, Counts.of(statistics));
+        }
+
+        log.info("{}: {}", operation, countsBySize);
+        Counts baseline = countsBySize.get(DATA_SIZES[0]);
+        countsBySize.forEach((trades, counts) ->
+                assertEquals(baseline, counts, operation + " counts grew with data size: " + countsBySize));
+    }
+
+    /**
+     * Replaces the book with the given number of trades over two accounts, where every fifth trade
+     * has an amended second version and every seventh has been cancelled.
+     */
+    private void seed(int trades) {
+        positionCalculationService.clearAllData();
+        List<Transaction> transactions = new ArrayList<>();
+        for (long trade = 1; trade <= trades; trade++) {
+            String account = "ACC-" + (trade % 2);
+            String securityCode = "SEC" + (trade % (trades / 2));
+            transactions.add(transaction(trade, 1, account, securityCode, (int) trade, Transaction.TransactionAction.INSERT));
+            if (trade % 5 == 0) {
+                transactions.add(transaction(trade, 2, account, securityCode, (int) trade + 1, Transaction.TransactionAction.UPDATE));
+            }
+            if (trade % 7 == 0) {
+                transactions.add(transaction(trade, 3, account, securityCode, (int) trade, Transaction.TransactionAction.CANCEL));
+            }
+        }
+        positionCalculationService.processBulkTransactions(transactions);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static Transaction transaction(long tradeId, int version, String account, String securityCode, int quantity,
+                                           Transaction.TransactionAction action) {
+        return Transaction.builder()
+                .tradeId(tradeId)
+                .version(version)
+                .account(account)
+                .securityCode(securityCode)
+                .quantity(quantity)
+                .action(action)
+                .side(tradeId % 3 == 0 ? Transaction.TransactionSide.SELL : Transaction.TransactionSide.BUY)
+                .build();
+    }
+
+    private record Counts(long statements, long entityFetches, long collectionFetches, long flushes) {
+
+        static Counts of(Statistics statistics) {
+            return new Counts(statistics.getPrepareStatementCount(), statistics.getEntityFetchCount(),
+                    statistics.getCollectionFetchCount(), statistics.getFlushCount());
+        }
+
+        @Override
+        public String toString() {
+            return "statements=" + statements + ", entityFetches=" + entityFetches
+                    + ", collectionFetches=" + collectionFetches + ", flushes=" + flushes;
+        }
+    }
+}
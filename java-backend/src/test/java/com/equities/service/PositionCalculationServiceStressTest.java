@@ -0,0 +1,339 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionQuery;
+import com.equities.model.Transaction;
+import com.equities.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers the service from many threads with randomized trade lifecycles (insert, amend,
+ * cancel, edit of the latest version, bulk batches), then checks the invariants that
+ * single-threaded tests cannot exercise. Run with {@code ./gradlew stressTest}; sizes can be
+ * changed with -Dstress.threads, -Dstress.operations and -Dstress.securities.
+ */
+@Tag("stress")
+@SpringBootTest
+@ActiveProfiles("test")
+class PositionCalculationServiceStressTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionCalculationServiceStressTest.class);
+
+    private static final int THREADS = Integer.getInteger("stress.threads", 8);
+    private static final int OPERATIONS_PER_THREAD = Integer.getInteger("stress.operations", 250);
+    private static final int SECURITIES = Integer.getInteger("stress.securities", 20);
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PositionIndex positionIndex;
+
+    @Autowired
+    private PositionReadModel positionReadModel;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong nextTradeId = new AtomicLong();
+    private final List<Long> liveTrades = new CopyOnWriteArrayList<>();
+    private final Map<Long, Integer> tradeVersions = new ConcurrentHashMap<>();
+    private final ErrorLog errors = new ErrorLog();
+    private final AtomicLong staleEdits = new AtomicLong();
+    private final ConcurrentLinkedQueue<String> processingStateRegressions = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+    }
+
+    @Test
+    void testConcurrentLifecyclesPreserveInvariants() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong transactionsWritten = new AtomicLong();
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                await(start);
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    try {
+                        transactionsWritten.addAndGet(randomOperation());
+                    } catch (TransactionEditException e) {
+                        staleEdits.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        errors.add(e);
+                    }
+                }
+            });
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> sampleProcessingState(running), "processing-state-sampler");
+        sampler.start();
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES), "Stress run did not finish");
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        running.set(false);
+        sampler.join();
+
+        log.info("Stress run: {} threads x {} operations, {} transactions in {} s ({} tx/s, {} ops/s), {} stale edits rejected, {} errors",
+                THREADS, OPERATIONS_PER_THREAD, transactionsWritten.get(), String.format("%.2f", seconds),
+                String.format("%.0f", transactionsWritten.get() / seconds),
+                String.format("%.0f", THREADS * OPERATIONS_PER_THREAD / seconds),
+                staleEdits.get(), errors.size());
+
+        assertTrue(errors.isEmpty(), () -> "Unexpected errors under concurrency: " + errors.summary());
+        assertUniqueTransactionIds();
+        assertProcessingStateCoversCommittedTransactions();
+        assertPositionsMatchFullRecalculation();
+    }
+
+    /**
+     * A write of another trade and security goes through while the first writer's transaction is
+     * still open, so disjoint writers do not queue on a shared row.
+     */
+    @Test
+    void testDisjointWritersOverlap() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch firstWritten = new CountDownLatch(1);
+        CountDownLatch secondWritten = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<?> first = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                positionCalculationService.processTransaction(overlapTrade(1001L, "OVL-A"));
+                firstWritten.countDown();
+                await(release);
+            }));
+            assertTrue(firstWritten.await(30, TimeUnit.SECONDS), "First writer did not write");
+
+            Future<?> second = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                positionCalculationService.processTransaction(overlapTrade(1002L, "OVL-B"));
+                secondWritten.countDown();
+            }));
+            boolean overlapped = secondWritten.await(30, TimeUnit.SECONDS);
+            release.countDown();
+            first.get(30, TimeUnit.SECONDS);
+            second.get(30, TimeUnit.SECONDS);
+
+            assertTrue(overlapped, "Second writer waited for the first writer's transaction");
+            assertEquals(Set.of("OVL-A", "OVL-B"), positionCalculationService.getAllPositions().stream()
+                    .map(Position::getSecurityCode).collect(Collectors.toSet()));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Transaction overlapTrade(long tradeId, String securityCode) {
+        return Transaction.builder()
+                .tradeId(tradeId)
+                .version(1)
+                .securityCode(securityCode)
+                .quantity(100)
+                .action(Transaction.TransactionAction.INSERT)
+                .side(Transaction.TransactionSide.BUY)
+                .build();
+    }
+
+    /**
+     * Polls the high-water mark while the writers run; it may only move forward.
+     */
+    private void sampleProcessingState(AtomicBoolean running) {
+        long previous = 0;
+        while (running.get()) {
+            long current = positionCalculationService.getProcessingState().getLastProcessedTransactionId();
+            if (current < previous) {
+                processingStateRegressions.add(previous + " -> " + current);
+            }
+            previous = Math.max(previous, current);
+        }
+    }
+
+    /**
+     * Checked before the full recalculation, which would move the mark itself.
+     */
+    private void assertProcessingStateCoversCommittedTransactions() {
+        assertTrue(processingStateRegressions.isEmpty(),
+                () -> "Processing state went backwards: " + List.copyOf(processingStateRegressions));
+        assertEquals(transactionRepository.findMaxTransactionId().orElse(0L),
+                positionCalculationService.getProcessingState().getLastProcessedTransactionId(),
+                "Processing state does not match the last committed transaction");
+    }
+
+    private int randomOperation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        if (roll < 35 || liveTrades.isEmpty()) {
+            positionCalculationService.processTransaction(newTrade());
+            return 1;
+        }
+        if (roll < 60) {
+            positionCalculationService.processTransaction(nextVersion(randomTrade(), random.nextInt(10) == 0));
+            return 1;
+        }
+        if (roll < 75) {
+            positionCalculationService.processTransaction(editOfLatest(randomTrade()));
+            return 1;
+        }
+        List<Transaction> batch = new ArrayList<>();
+        int size = 1 + random.nextInt(10);
+        for (int i = 0; i < size; i++) {
+            int kind = random.nextInt(3);
+            batch.add(kind == 0 ? newTrade() : kind == 1 ? nextVersion(randomTrade(), false) : editOfLatest(randomTrade()));
+        }
+        positionCalculationService.processBulkTransactions(batch);
+        return batch.size();
+    }
+
+    private Transaction newTrade() {
+        long tradeId = nextTradeId.incrementAndGet();
+        tradeVersions.put(tradeId, 1);
+        liveTrades.add(tradeId);
+        return transaction(tradeId, 1, Transaction.TransactionAction.INSERT);
+    }
+
+    private Transaction nextVersion(long tradeId, boolean cancel) {
+        int version = tradeVersions.merge(tradeId, 1, Integer::sum);
+        if (cancel) {
+            liveTrades.remove(tradeId);
+        }
+        return transaction(tradeId, version, cancel ? Transaction.TransactionAction.CANCEL : Transaction.TransactionAction.UPDATE);
+    }
+
+    private Transaction editOfLatest(long tradeId) {
+        Transaction latest = transactionRepository.findLatestTransactionByTradeId(tradeId).orElse(null);
+        if (latest == null) {
+            return nextVersion(tradeId, false);
+        }
+        Transaction edit = transaction(tradeId, latest.getVersion(), latest.getAction());
+        edit.setTransactionId(latest.getTransactionId());
+        return edit;
+    }
+
+    private long randomTrade() {
+        List<Long> snapshot = liveTrades;
+        return snapshot.isEmpty() ? newTrade().getTradeId() : snapshot.get(ThreadLocalRandom.current().nextInt(snapshot.size()));
+    }
+
+    private static Transaction transaction(long tradeId, int version, Transaction.TransactionAction action) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Transaction.builder()
+                .tradeId(tradeId)
+                .version(version)
+                .securityCode("SEC" + random.nextInt(SECURITIES))
+                .quantity(1 + random.nextInt(1000))
+                .action(action)
+                .side(random.nextBoolean() ? Transaction.TransactionSide.BUY : Transaction.TransactionSide.SELL)
+                .build();
+    }
+
+    private void assertUniqueTransactionIds() {
+        List<Transaction> transactions = transactionRepository.findAll();
+        Set<Long> ids = transactions.stream().map(Transaction::getTransactionId).collect(Collectors.toSet());
+        assertFalse(ids.contains(null), "Transaction without transactionId");
+        assertEquals(transactions.size(), ids.size(), "Duplicate transactionIds");
+    }
+
+    private void assertPositionsMatchFullRecalculation() {
+        Map<String, Integer> persisted = quantities(positionCalculationService.getAllPositions());
+        Map<String, Integer> indexed = quantities(positionIndex.query(PositionQuery.builder().build()).getPositions());
+        Map<String, Integer> snapshot = quantities(positionReadModel.current().getPositions());
+        Map<String, Integer> recalculated = quantities(positionCalculationService.forceFullRecalculation());
+
+        assertEquals(recalculated, persisted, "Incrementally maintained positions drifted from a full recalculation");
+        assertEquals(recalculated, indexed, "In-memory position index drifted from a full recalculation");
+        assertEquals(recalculated, snapshot, "Position read model drifted from a full recalculation");
+    }
+
+    /**
+     * Every row, flat ones included, so a row left behind for a cell without trades is caught.
+     */
+    private static Map<String, Integer> quantities(List<Position> positions) {
+        return positions.stream()
+                .collect(Collectors.toMap(p -> p.getAccount() + "/" + p.getSecurityCode(), Position::getQuantity,
+                        (a, b) -> fail("Duplicate position row"), TreeMap::new));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collects unexpected errors and summarises them by exception type.
+     */
+    private static final class ErrorLog {
+
+        private final ConcurrentLinkedQueue<RuntimeException> errors = new ConcurrentLinkedQueue<>();
+
+        void add(RuntimeException e) {
+            errors.add(e);
+        }
+
+        boolean isEmpty() {
+            return errors.isEmpty();
+        }
+
+        int size() {
+            return errors.size();
+        }
+
+        String summary() {
+            Map<String, Long> byType = errors.stream()
+                    .collect(Collectors.groupingBy(e -> e.getClass().getSimpleName() + ": " + rootMessage(e),
+                            TreeMap::new, Collectors.counting()));
+            return byType.entrySet().stream()
+                    .limit(10)
+                    .map(entry -> entry.getValue() + "x " + entry.getKey())
+                    .collect(Collectors.joining("; "));
+        }
+
+        private static String rootMessage(Throwable e) {
+            Throwable root = e;
+            while (root.getCause() != null) {
+                root = root.getCause();
+            }
+            String message = String.valueOf(root.getMessage());
+            return message.length() > 120 ? message.substring(0, 120) : message;
+        }
+    }
+}
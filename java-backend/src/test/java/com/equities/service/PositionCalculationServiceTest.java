@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,6 +30,9 @@ class PositionCalculationServiceTest {
     @Autowired
     private PositionRepository positionRepository;
 
+    @Autowired
+    private TransactionIdAllocator transactionIdAllocator;
+
     @BeforeEach
     void setUp() {
         positionRepository.deleteAll();
@@ -322,4 +326,83 @@ class PositionCalculationServiceTest {
         assertTrue(relV2.getIsLatestVersion());  // Version 2 is latest for trade 1
         assertTrue(itcV1.getIsLatestVersion());  // Version 1 is latest for trade 2 (only transaction)
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testNotionalAndVwapReverseOnUpdateAndCancel() {
+        positionCalculationService.processTransaction(pricedTransaction(1L, 1, 100, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY, "10"));
+        positionCalculationService.processTransaction(pricedTransaction(2L, 1, 40, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.SELL, "12"));
+        Position position = single(positionCalculationService.processTransaction(
+                pricedTransaction(3L, 1, 10, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY, null)));
+
+        // Unpriced trades count towards quantity only
+        assertEquals(70, position.getQuantity());
+        assertEquals(0, new BigDecimal("520").compareTo(position.getNotional()));
+        assertEquals(new BigDecimal("10.571429"), position.getVwap());
+
+        position = single(positionCalculationService.processTransaction(
+                pricedTransaction(1L, 2, 50, Transaction.TransactionAction.UPDATE, Transaction.TransactionSide.BUY, "11")));
+        assertEquals(20, position.getQuantity());
+        assertEquals(0, new BigDecimal("70").compareTo(position.getNotional()));
+        assertEquals(new BigDecimal("11.444444"), position.getVwap());
+
+        position = single(positionCalculationService.processTransaction(
+                pricedTransaction(2L, 2, 40, Transaction.TransactionAction.CANCEL, Transaction.TransactionSide.SELL, "12")));
+        assertEquals(60, position.getQuantity());
+        assertEquals(0, new BigDecimal("550").compareTo(position.getNotional()));
+        assertEquals(0, new BigDecimal("11").compareTo(position.getVwap()));
+
+        // Editing the latest version in place replaces its price
+        Transaction latest = transactionRepository.findLatestTransactionByTradeId(1L).orElseThrow();
+        Transaction edit = pricedTransaction(1L, 2, 50, Transaction.TransactionAction.UPDATE, Transaction.TransactionSide.BUY, "13");
+        edit.setTransactionId(latest.getTransactionId());
+        position = single(positionCalculationService.processTransaction(edit));
+        assertEquals(0, new BigDecimal("650").compareTo(position.getNotional()));
+        assertEquals(0, new BigDecimal("13").compareTo(position.getVwap()));
+
+        Position recalculated = single(positionCalculationService.forceFullRecalculation());
+        assertEquals(0, position.getNotional().compareTo(recalculated.getNotional()));
+        assertEquals(0, position.getVwap().compareTo(recalculated.getVwap()));
+    }
+
+    @Test
+    void testUnpricedPositionHasNoNotional() {
+        Position position = single(positionCalculationService.processTransaction(
+                pricedTransaction(1L, 1, 25, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.SELL, null)));
+
+        assertEquals(-25, position.getQuantity());
+        assertNull(position.getNotional());
+        assertNull(position.getVwap());
+    }
+
+    @Test
+    void testGeneratedTransactionIdsStayAboveExplicitIdsAfterReseed() {
+        Transaction explicit = pricedTransaction(1L, 1, 10, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY, null);
+        explicit.setTransactionId(500L);
+        positionCalculationService.processTransaction(explicit);
+
+        // A restart reads the maximum again; it must be the business id, not the row id
+        transactionIdAllocator.reset();
+        positionCalculationService.processTransaction(
+                pricedTransaction(2L, 1, 10, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY, null));
+
+        assertEquals(501L, transactionRepository.findLatestTransactionByTradeId(2L).orElseThrow().getTransactionId());
+    }
+
+    private static Position single(List<Position> positions) {
+        assertEquals(1, positions.size());
+        return positions.get(0);
+    }
+
+    private static Transaction pricedTransaction(Long tradeId, int version, int quantity, Transaction.TransactionAction action,
+                                                 Transaction.TransactionSide side, String price) {
+        return Transaction.builder()
+                .tradeId(tradeId)
+                .version(version)
+                .securityCode("REL")
+                .quantity(quantity)
+                .action(action)
+                .side(side)
+                .price(price == null ? null : new BigDecimal(price))
+                .build();
+    }
+}
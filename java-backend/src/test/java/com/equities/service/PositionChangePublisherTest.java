@@ -0,0 +1,107 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionChangePublisherTest {
+
+    private final List<Integer> delivered = new ArrayList<>();
+    private PositionChangePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("recorder", new PositionChangeListener() {
+            @Override
+            public void onPositionsChanged(List<PositionChange> changes) {
+                changes.forEach(change -> delivered.add(change.getQuantity()));
+            }
+
+            @Override
+            public void onPositionsReset(List<Position> book) {
+            }
+        });
+        publisher = new PositionChangePublisher(beanFactory.getBeanProvider(PositionChangeListener.class), null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testLaterCommitWaitsForEarlierOne() {
+        List<TransactionSynchronization> first = inTransaction(() -> publisher.publish(List.of(change(1))));
+        List<TransactionSynchronization> second = inTransaction(() -> publisher.publish(List.of(change(2))));
+
+        complete(second, TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(List.of(), delivered);
+
+        complete(first, TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(List.of(1, 2), delivered);
+    }
+
+    @Test
+    void testRollbackGivesUpItsPlace() {
+        List<TransactionSynchronization> first = inTransaction(() -> publisher.publish(List.of(change(1))));
+        List<TransactionSynchronization> second = inTransaction(() -> publisher.publish(List.of(change(2))));
+
+        complete(second, TransactionSynchronization.STATUS_COMMITTED);
+        complete(first, TransactionSynchronization.STATUS_ROLLED_BACK);
+        publisher.publish(List.of(change(3)));
+
+        assertEquals(List.of(2, 3), delivered);
+    }
+
+    @Test
+    void testCommitterWaitsUntilItsOwnChangesAreDelivered() throws Exception {
+        List<TransactionSynchronization> first = inTransaction(() -> publisher.publish(List.of(change(1))));
+        CountDownLatch returned = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            complete(inTransaction(() -> publisher.publish(List.of(change(2)))), TransactionSynchronization.STATUS_COMMITTED);
+            publisher.awaitOwnChanges();
+            returned.countDown();
+        });
+        writer.start();
+
+        assertFalse(returned.await(200, TimeUnit.MILLISECONDS), "Returned before its change was delivered");
+        complete(first, TransactionSynchronization.STATUS_COMMITTED);
+        assertTrue(returned.await(5, TimeUnit.SECONDS));
+        writer.join();
+        assertEquals(List.of(1, 2), delivered);
+    }
+
+    /** Registers the work's synchronizations as one transaction would, without completing it */
+    private static List<TransactionSynchronization> inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void complete(List<TransactionSynchronization> synchronizations, int status) {
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private static PositionChange change(int quantity) {
+        return new PositionChange("ACC-1", "REL", quantity);
+    }
+}
@@ -0,0 +1,107 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.model.PositionPage;
+import com.equities.model.PositionQuery;
+import com.equities.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionIndexTest {
+
+    private PositionIndex positionIndex;
+
+    @BeforeEach
+    void setUp() {
+        positionIndex = new PositionIndex();
+        positionIndex.onPositionsReset(List.of(
+                position("INF", 50), position("INFY", -20), position("ITC", 0), position("REL", 60), position("TCS", -10)));
+    }
+
+    @Test
+    void testPrefixAndDirectionFilter() {
+        PositionPage page = positionIndex.query(PositionQuery.builder()
+                .prefix("IN")
+                .direction(PositionQuery.Direction.SHORT)
+                .build());
+
+        assertEquals(1, page.getTotalElements());
+        assertEquals("INFY", page.getPositions().get(0).getSecurityCode());
+    }
+
+    @Test
+    void testRangeWithPagination() {
+        PositionPage page = positionIndex.query(PositionQuery.builder()
+                .from("INFY")
+                .to("TCS")
+                .page(1)
+                .size(2)
+                .build());
+
+        assertEquals(3, page.getTotalElements());
+        assertEquals(List.of("REL"), page.getPositions().stream().map(Position::getSecurityCode).toList());
+    }
+
+    @Test
+    void testSecurityCodesReflectIncrementalChanges() {
+        positionIndex.onPositionsChanged(List.of(
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "REL", null),
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "ITC", 15)
+        ));
+
+        PositionPage page = positionIndex.query(PositionQuery.builder()
+                .securityCodes(List.of("REL", "ITC", "TCS"))
+                .direction(PositionQuery.Direction.NON_ZERO)
+                .build());
+
+        assertEquals(List.of("ITC", "TCS"), page.getPositions().stream().map(Position::getSecurityCode).toList());
+        assertEquals(15, page.getPositions().get(0).getQuantity());
+    }
+
+    @Test
+    void testAccountQueryReadsOnlyThatAccount() {
+        positionIndex.onPositionsChanged(List.of(
+                new PositionChange("ACC-2", "REL", -5),
+                new PositionChange("ACC-2", "WIPRO", 30)
+        ));
+
+        PositionPage account = positionIndex.query(PositionQuery.builder().account("ACC-2").build());
+        PositionPage all = positionIndex.query(PositionQuery.builder().securityCodes(List.of("REL")).build());
+
+        assertEquals(List.of("REL", "WIPRO"), account.getPositions().stream().map(Position::getSecurityCode).toList());
+        assertEquals(List.of("ACC-2", Transaction.DEFAULT_ACCOUNT), all.getPositions().stream().map(Position::getAccount).toList());
+        assertEquals(0, positionIndex.query(PositionQuery.builder().account("UNKNOWN").build()).getTotalElements());
+    }
+
+    @Test
+    void testDirectionPagesAndTotalsFollowChanges() {
+        positionIndex.onPositionsChanged(List.of(
+                new PositionChange("ACC-2", "WIPRO", 30),
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "REL", -5),
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "ITC", null)
+        ));
+
+        PositionPage shortPage = positionIndex.query(PositionQuery.builder()
+                .direction(PositionQuery.Direction.SHORT)
+                .page(1)
+                .size(2)
+                .build());
+        PositionPage longs = positionIndex.query(PositionQuery.builder().direction(PositionQuery.Direction.LONG).build());
+
+        assertEquals(3, shortPage.getTotalElements());
+        assertEquals(List.of("TCS"), shortPage.getPositions().stream().map(Position::getSecurityCode).toList());
+        assertEquals(List.of("WIPRO", "INF"), longs.getPositions().stream().map(Position::getSecurityCode).toList());
+        assertEquals(5, positionIndex.query(PositionQuery.builder().direction(PositionQuery.Direction.NON_ZERO).build()).getTotalElements());
+        assertEquals(1, positionIndex.query(PositionQuery.builder().account("ACC-2").direction(PositionQuery.Direction.LONG).build()).getTotalElements());
+        assertEquals(5, positionIndex.size());
+    }
+
+    private static Position position(String securityCode, int quantity) {
+        return Position.builder().securityCode(securityCode).quantity(quantity).build();
+    }
+}
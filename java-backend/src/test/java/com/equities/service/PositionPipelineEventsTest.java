@@ -0,0 +1,116 @@
+package com.equities.service;
+
+import com.equities.model.Transaction;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: the recorded flushes and full recalculation must run as they do in production.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PositionPipelineEventsTest {
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+    }
+
+    @AfterEach
+    void tearDown() {
+        positionCalculationService.clearAllData();
+    }
+
+    @Test
+    void testTransactionEventCarriesTradeSecuritiesAndRowCounts() throws IOException {
+        process(1L, 1, "REL", 50, Transaction.TransactionAction.INSERT);
+
+        List<RecordedEvent> events = record(() -> process(1L, 2, "ITC", 30, Transaction.TransactionAction.UPDATE));
+
+        RecordedEvent transaction = single(events, "com.equities.TransactionProcessed");
+        assertEquals(1L, transaction.getLong("tradeId"));
+        assertEquals(1, transaction.getInt("transactions"));
+        assertFalse(transaction.getBoolean("edit"));
+        assertEquals("ITC", transaction.getString("securities"));
+        assertTrue(transaction.getLong("rowsRead") > 0);
+
+        RecordedEvent delta = single(events, "com.equities.DeltaRecalculation");
+        assertEquals(1, delta.getInt("newTransactions"));
+        assertEquals(2, delta.getInt("cells"));
+        assertEquals("ITC,REL", delta.getString("securities"));
+
+        // The moved trade deletes the REL position and inserts the ITC one
+        RecordedEvent flush = single(events, "com.equities.PositionFlush");
+        assertEquals(2, flush.getLong("rowsWritten"));
+
+        // Nested events count towards their parents
+        assertTrue(delta.getLong("rowsWritten") >= flush.getLong("rowsWritten") + 1);
+        assertTrue(transaction.getLong("rowsWritten") >= delta.getLong("rowsWritten") + 1);
+        assertTrue(!transaction.getStartTime().isAfter(delta.getStartTime())
+                && !transaction.getEndTime().isBefore(delta.getEndTime()));
+    }
+
+    @Test
+    void testFullRecalculationEventCountsBook() throws IOException {
+        positionCalculationService.loadSampleData();
+
+        List<RecordedEvent> events = record(positionCalculationService::forceFullRecalculation);
+
+        RecordedEvent full = single(events, "com.equities.FullRecalculation");
+        // Cells of the rebuilt book, including the flattened ITC cell that is removed from the table
+        assertEquals(3, full.getInt("positions"));
+        assertEquals(3, full.getInt("securities"));
+        assertTrue(full.getLong("rowsRead") >= positionCalculationService.getAllTransactions().size());
+        assertEquals(1, events.stream().filter(e -> e.getEventType().getName().equals("com.equities.PositionFlush")).count());
+    }
+
+    private List<RecordedEvent> record(Runnable action) throws IOException {
+        Path file = tempDir.resolve("pipeline.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PositionPipelineEvents.TransactionProcessed.class).withThreshold(Duration.ZERO);
+            recording.enable(PositionPipelineEvents.DeltaRecalculation.class).withThreshold(Duration.ZERO);
+            recording.enable(PositionPipelineEvents.FullRecalculation.class).withThreshold(Duration.ZERO);
+            recording.enable(PositionPipelineEvents.PositionFlush.class).withThreshold(Duration.ZERO);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getThread() != null && e.getThread().getJavaThreadId() == Thread.currentThread().getId())
+                .toList();
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+
+    private void process(Long tradeId, int version, String securityCode, int quantity, Transaction.TransactionAction action) {
+        positionCalculationService.processTransaction(Transaction.builder()
+                .tradeId(tradeId).version(version).account("ACC1").securityCode(securityCode).quantity(quantity)
+                .action(action).side(Transaction.TransactionSide.BUY).build());
+    }
+}
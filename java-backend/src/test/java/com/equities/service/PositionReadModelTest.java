@@ -0,0 +1,74 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.model.PositionSnapshot;
+import com.equities.model.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionReadModelTest {
+
+    private PositionReadModel positionReadModel;
+
+    @BeforeEach
+    void setUp() {
+        positionReadModel = new PositionReadModel(new SimpleMeterRegistry());
+        positionReadModel.onPositionsReset(List.of(position("REL", 60), position("ITC", -40)));
+    }
+
+    @Test
+    void testResetPublishesSortedSnapshot() {
+        PositionSnapshot snapshot = positionReadModel.current();
+
+        assertEquals(1, snapshot.getVersion());
+        assertEquals(List.of("ITC", "REL"), snapshot.getPositions().stream().map(Position::getSecurityCode).toList());
+    }
+
+    @Test
+    void testChangesPublishNewVersionAndLeaveOldSnapshotIntact() {
+        PositionSnapshot before = positionReadModel.current();
+
+        positionReadModel.onPositionsChanged(List.of(
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "ITC", null),
+                new PositionChange(Transaction.DEFAULT_ACCOUNT, "INF", 25),
+                new PositionChange("ACC-2", "REL", -5)
+        ));
+        PositionSnapshot after = positionReadModel.current();
+
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(List.of("ACC-2/REL=-5", "DEFAULT/INF=25", "DEFAULT/REL=60"), describe(after));
+        assertEquals(List.of("DEFAULT/ITC=-40", "DEFAULT/REL=60"), describe(before));
+        assertThrows(UnsupportedOperationException.class, () -> after.getPositions().add(position("TCS", 1)));
+    }
+
+    @Test
+    void testChangesCopyOnlyTheAccountsTheyTouch() {
+        positionReadModel.onPositionsChanged(List.of(new PositionChange("ACC-2", "REL", -5)));
+        PositionSnapshot before = positionReadModel.current();
+
+        positionReadModel.onPositionsChanged(List.of(new PositionChange("ACC-3", "TCS", 10)));
+        PositionSnapshot after = positionReadModel.current();
+
+        assertSame(before.getAccounts().get("ACC-2"), after.getAccounts().get("ACC-2"));
+        assertSame(before.getAccounts().get(Transaction.DEFAULT_ACCOUNT), after.getAccounts().get(Transaction.DEFAULT_ACCOUNT));
+        assertEquals(List.of("ACC-2/REL=-5", "ACC-3/TCS=10", "DEFAULT/ITC=-40", "DEFAULT/REL=60"), describe(after));
+        assertEquals("TCS", after.getPositions().get(1).getSecurityCode());
+        assertEquals(4, after.getPositions().size());
+    }
+
+    private static List<String> describe(PositionSnapshot snapshot) {
+        return snapshot.getPositions().stream()
+                .map(p -> p.getAccount() + "/" + p.getSecurityCode() + "=" + p.getQuantity())
+                .toList();
+    }
+
+    private static Position position(String securityCode, int quantity) {
+        return Position.builder().securityCode(securityCode).quantity(quantity).build();
+    }
+}
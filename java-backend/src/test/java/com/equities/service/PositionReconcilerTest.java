@@ -0,0 +1,119 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.ReconciliationMismatch;
+import com.equities.model.Transaction;
+import com.equities.repository.PositionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "equities.reconciliation.repair=true")
+@ActiveProfiles("test")
+@Transactional
+class PositionReconcilerTest {
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @Autowired
+    private PositionReconciler positionReconciler;
+
+    @Autowired
+    private PositionRepository positionRepository;
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+        positionCalculationService.processBulkTransactions(List.of(
+                Transaction.builder().tradeId(1L).version(1).securityCode("REL").quantity(50).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(2L).version(1).securityCode("REL").quantity(20).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(3L).version(1).securityCode("ITC").quantity(40).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.SELL).build()
+        ));
+    }
+
+    @Test
+    void testConsistentBookHasNoMismatches() {
+        assertTrue(reconcileFullPass().isEmpty());
+    }
+
+    @Test
+    void testCancelLeavesOtherTradesOfTheSecurity() {
+        positionCalculationService.processBulkTransactions(List.of(
+                Transaction.builder().tradeId(2L).version(2).securityCode("REL").quantity(20).action(Transaction.TransactionAction.CANCEL).side(Transaction.TransactionSide.BUY).build()
+        ));
+
+        assertEquals(50, positionRepository.findBySecurityCode("REL").orElseThrow().getQuantity());
+        assertTrue(reconcileFullPass().isEmpty());
+    }
+
+    @Test
+    void testDriftIsReportedAndRepaired() {
+        Position rel = positionRepository.findBySecurityCode("REL").orElseThrow();
+        rel.setQuantity(0);
+        positionRepository.save(rel);
+        positionRepository.save(Position.builder().securityCode("TCS").quantity(15).build());
+
+        List<ReconciliationMismatch> mismatches = reconcileFullPass();
+
+        assertEquals(2, mismatches.size());
+        ReconciliationMismatch relMismatch = mismatches.stream()
+                .filter(m -> m.getSecurityCode().equals("REL"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(0, relMismatch.getPersistedQuantity());
+        assertEquals(70, relMismatch.getExpectedQuantity());
+        assertTrue(relMismatch.isRepaired());
+
+        assertEquals(70, positionRepository.findBySecurityCode("REL").orElseThrow().getQuantity());
+        assertTrue(positionRepository.findBySecurityCode("TCS").isEmpty());
+        assertTrue(reconcileFullPass().isEmpty());
+    }
+
+    @Test
+    void testPricingDriftIsRepairedWithTheRow() {
+        positionCalculationService.processBulkTransactions(List.of(
+                Transaction.builder().tradeId(4L).version(1).securityCode("INF").quantity(10).price(new BigDecimal("100")).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(5L).version(1).securityCode("INF").quantity(4).price(new BigDecimal("110")).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.SELL).build()
+        ));
+        Position inf = positionRepository.findBySecurityCode("INF").orElseThrow();
+        BigDecimal notional = inf.getNotional();
+        BigDecimal vwap = inf.getVwap();
+        inf.setNotional(BigDecimal.ZERO);
+        positionRepository.save(inf);
+
+        List<ReconciliationMismatch> mismatches = reconcileFullPass();
+
+        assertEquals(1, mismatches.size());
+        assertEquals(6, mismatches.get(0).getPersistedQuantity());
+        assertEquals(6, mismatches.get(0).getExpectedQuantity());
+        assertEquals(0, notional.compareTo(mismatches.get(0).getExpectedNotional()));
+        assertEquals(0, notional.compareTo(positionRepository.findBySecurityCode("INF").orElseThrow().getNotional()));
+
+        positionRepository.delete(positionRepository.findBySecurityCode("INF").orElseThrow());
+
+        assertEquals(1, reconcileFullPass().size());
+        Position restored = positionRepository.findBySecurityCode("INF").orElseThrow();
+        assertEquals(6, restored.getQuantity());
+        assertEquals(0, notional.compareTo(restored.getNotional()));
+        assertEquals(0, vwap.compareTo(restored.getVwap()));
+        assertTrue(reconcileFullPass().isEmpty());
+    }
+
+    private List<ReconciliationMismatch> reconcileFullPass() {
+        List<ReconciliationMismatch> mismatches = new ArrayList<>();
+        do {
+            mismatches.addAll(positionReconciler.reconcileNextChunk());
+        } while (!positionReconciler.getReport().getCursor().isEmpty());
+        return mismatches;
+    }
+}
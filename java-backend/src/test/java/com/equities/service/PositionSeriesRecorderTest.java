@@ -0,0 +1,128 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.PositionChange;
+import com.equities.model.PositionSeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionSeriesRecorderTest {
+
+    private static final Instant START = Instant.parse("2026-01-05T09:00:00Z");
+
+    private MutableClock clock;
+    private PositionSeriesRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(START);
+        recorder = new PositionSeriesRecorder(new PositionKeys(new AccountDictionary(), new SecurityDictionary()),
+                Duration.ofMinutes(1), 5, clock);
+        recorder.onPositionsReset(List.of(position("ACC1", "REL", 100), position("ACC2", "REL", -30)));
+    }
+
+    @Test
+    void testChangesAcrossAccountsAggregateIntoBuckets() {
+        clock.advance(Duration.ofSeconds(10));
+        recorder.onPositionsChanged(List.of(new PositionChange("ACC1", "REL", 150)));
+        recorder.onPositionsChanged(List.of(new PositionChange("ACC2", "REL", -90)));
+        clock.advance(Duration.ofMinutes(2));
+        recorder.onPositionsChanged(List.of(new PositionChange("ACC2", "REL", null)));
+
+        PositionSeries series = recorder.seriesFor("REL");
+
+        assertEquals(150, series.getQuantity());
+        assertEquals(60_000, series.getBucketMillis());
+        List<PositionSeries.Bucket> buckets = series.getBuckets();
+        assertEquals(2, buckets.size());
+        PositionSeries.Bucket first = buckets.get(0);
+        assertEquals(START, first.getStart());
+        assertEquals(0, first.getOpen());
+        assertEquals(120, first.getHigh());
+        assertEquals(0, first.getLow());
+        assertEquals(60, first.getClose());
+        assertEquals(3, first.getChanges());
+        PositionSeries.Bucket second = buckets.get(1);
+        assertEquals(START.plus(Duration.ofMinutes(2)), second.getStart());
+        assertEquals(60, second.getOpen());
+        assertEquals(150, second.getClose());
+        assertEquals(1, second.getChanges());
+    }
+
+    @Test
+    void testRetentionIsBoundedByBucketCount() {
+        for (int minute = 1; minute <= 12; minute++) {
+            clock.advance(Duration.ofMinutes(1));
+            recorder.onPositionsChanged(List.of(new PositionChange("ACC1", "REL", 100 + minute)));
+        }
+
+        List<PositionSeries.Bucket> buckets = recorder.seriesFor("REL").getBuckets();
+        assertEquals(5, buckets.size());
+        assertEquals(START.plus(Duration.ofMinutes(8)), buckets.get(0).getStart());
+        assertEquals(112 - 30, buckets.get(4).getClose());
+
+        // Buckets age out of the window even without further changes
+        clock.advance(Duration.ofMinutes(3));
+        assertEquals(2, recorder.seriesFor("REL").getBuckets().size());
+        assertEquals(82, recorder.seriesFor("REL").getQuantity());
+    }
+
+    @Test
+    void testResetRecordsDifferenceAndEmptyBookClearsHistory() {
+        clock.advance(Duration.ofMinutes(1));
+        recorder.onPositionsReset(List.of(position("ACC1", "REL", 40), position("ACC1", "INF", 5)));
+
+        assertEquals(40, recorder.seriesFor("REL").getQuantity());
+        assertEquals(2, recorder.seriesFor("REL").getBuckets().size());
+        assertEquals(5, recorder.seriesFor("INF").getBuckets().get(0).getClose());
+
+        // ACC2 left the book with the reset, so its next change adds to the reset net
+        recorder.onPositionsChanged(List.of(new PositionChange("ACC2", "REL", -10)));
+        assertEquals(30, recorder.seriesFor("REL").getQuantity());
+
+        recorder.onPositionsReset(List.of());
+        assertTrue(recorder.seriesFor("REL").getBuckets().isEmpty());
+        assertEquals(0, recorder.seriesFor("ITC").getQuantity());
+    }
+
+    private static Position position(String account, String securityCode, int quantity) {
+        return Position.builder().account(account).securityCode(securityCode).quantity(quantity).build();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.equities.service;
+
+import com.equities.model.TradeContribution;
+import com.equities.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: the index is refreshed after commit, so each test clears the book itself.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TradeIndexTest {
+
+    @Autowired
+    private TradeIndex tradeIndex;
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+    }
+
+    @AfterEach
+    void tearDown() {
+        positionCalculationService.clearAllData();
+    }
+
+    @Test
+    void testInsertsAreIndexedWithSignedImpacts() {
+        process(1L, 1, "ACC1", "REL", 50, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY);
+        process(2L, 1, "ACC2", "REL", 20, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.SELL);
+        process(3L, 1, "ACC1", "ITC", 10, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY);
+
+        List<TradeContribution> trades = tradeIndex.tradesFor("REL");
+        assertEquals(List.of(1L, 2L), trades.stream().map(TradeContribution::getTradeId).toList());
+        assertEquals(50, trades.get(0).getImpact());
+        assertEquals("ACC2", trades.get(1).getAccount());
+        assertEquals(-20, trades.get(1).getImpact());
+        assertEquals(1, tradeIndex.tradesFor("ITC").size());
+        assertTrue(tradeIndex.tradesFor("INF").isEmpty());
+    }
+
+    @Test
+    void testUpdateMovingSecurityAndCancelKeepIndexCurrent() {
+        process(1L, 1, "ACC1", "REL", 50, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY);
+        process(2L, 1, "ACC1", "REL", 30, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY);
+
+        process(1L, 2, "ACC1", "ITC", 60, Transaction.TransactionAction.UPDATE, Transaction.TransactionSide.SELL);
+        assertEquals(List.of(2L), tradeIds("REL"));
+        assertEquals(List.of(1L), tradeIds("ITC"));
+        assertEquals(2, tradeIndex.tradesFor("ITC").get(0).getVersion());
+        assertEquals(-60, tradeIndex.tradesFor("ITC").get(0).getImpact());
+
+        process(2L, 2, "ACC1", "REL", 30, Transaction.TransactionAction.CANCEL, Transaction.TransactionSide.BUY);
+        assertTrue(tradeIndex.tradesFor("REL").isEmpty());
+        assertEquals(1, tradeIndex.size());
+    }
+
+    @Test
+    void testEditOfLatestVersionMovesTradeBetweenSecurities() {
+        process(1L, 1, "ACC1", "REL", 50, Transaction.TransactionAction.INSERT, Transaction.TransactionSide.BUY);
+        Transaction inserted = positionCalculationService.getAllTransactions().get(0);
+
+        positionCalculationService.processTransaction(Transaction.builder()
+                .transactionId(inserted.getTransactionId())
+                .tradeId(1L).version(1).account("ACC2").securityCode("INF").quantity(40)
+                .action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build());
+
+        assertTrue(tradeIndex.tradesFor("REL").isEmpty());
+        TradeContribution moved = tradeIndex.tradesFor("INF").get(0);
+        assertEquals("ACC2", moved.getAccount());
+        assertEquals(40, moved.getImpact());
+    }
+
+    @Test
+    void testIndexMatchesPositionsAfterFullRecalculationAndInitialise() {
+        positionCalculationService.loadSampleData();
+        positionCalculationService.forceFullRecalculation();
+
+        assertEquals(List.of(1L), tradeIds("REL"));
+        assertEquals(List.of(3L, 4L), tradeIds("INF"));
+        assertTrue(tradeIndex.tradesFor("ITC").isEmpty());
+        int infImpact = tradeIndex.tradesFor("INF").stream().mapToInt(TradeContribution::getImpact).sum();
+        assertEquals(50, infImpact);
+
+        tradeIndex.reset(List.of());
+        assertEquals(3, tradeIndex.initialise());
+        assertEquals(List.of(3L, 4L), tradeIds("INF"));
+
+        positionCalculationService.clearAllData();
+        assertEquals(0, tradeIndex.size());
+    }
+
+    private List<Long> tradeIds(String securityCode) {
+        return tradeIndex.tradesFor(securityCode).stream().map(TradeContribution::getTradeId).toList();
+    }
+
+    private void process(Long tradeId, int version, String account, String securityCode, int quantity,
+                         Transaction.TransactionAction action, Transaction.TransactionSide side) {
+        positionCalculationService.processTransaction(Transaction.builder()
+                .tradeId(tradeId).version(version).account(account).securityCode(securityCode).quantity(quantity)
+                .action(action).side(side).build());
+    }
+}
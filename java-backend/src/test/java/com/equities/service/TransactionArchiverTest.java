@@ -0,0 +1,116 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.Transaction;
+import com.equities.repository.ArchivedTransactionRepository;
+import com.equities.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class TransactionArchiverTest {
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @Autowired
+    private TransactionArchiver transactionArchiver;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ArchivedTransactionRepository archivedTransactionRepository;
+
+    @Autowired
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+        positionCalculationService.processBulkTransactions(List.of(
+                Transaction.builder().tradeId(1L).version(1).securityCode("REL").quantity(50).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(2L).version(1).securityCode("ITC").quantity(40).action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.SELL).build(),
+                Transaction.builder().tradeId(1L).version(2).securityCode("REL").quantity(60).action(Transaction.TransactionAction.UPDATE).side(Transaction.TransactionSide.BUY).build(),
+                Transaction.builder().tradeId(2L).version(2).securityCode("ITC").quantity(40).action(Transaction.TransactionAction.CANCEL).side(Transaction.TransactionSide.SELL).build(),
+                Transaction.builder().tradeId(2L).version(3).securityCode("ITC").quantity(30).action(Transaction.TransactionAction.UPDATE).side(Transaction.TransactionSide.SELL).build()
+        ));
+    }
+
+    @Test
+    void testCompactionMovesOnlySupersededNonCancelVersions() {
+        assertEquals(2, transactionArchiver.compact());
+
+        assertEquals(3, transactionRepository.count());
+        assertEquals(2, archivedTransactionRepository.count());
+        assertEquals(List.of(1L, 2L), archivedTransactionRepository.findAll().stream()
+                .map(a -> a.getTradeId()).sorted().toList());
+
+        // Nothing left to move on a second run
+        assertEquals(0, transactionArchiver.compact());
+    }
+
+    @Test
+    void testPositionsAreUnchangedByCompaction() {
+        Map<String, Integer> before = toMap(positionCalculationService.forceFullRecalculation());
+
+        transactionArchiver.compact();
+
+        assertEquals(before, toMap(positionCalculationService.forceFullRecalculation()));
+        assertEquals(60, before.get("REL"));
+        assertEquals(0, before.get("ITC"));
+    }
+
+    @Test
+    void testHistoryReadsIncludeArchivedVersions() throws IOException {
+        transactionArchiver.compact();
+
+        List<Transaction> history = positionCalculationService.getAllTransactions();
+        assertEquals(5, history.size());
+        assertEquals(2, history.stream().filter(Transaction::getIsLatestVersion).count());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(5, exportService.exportTransactions(0, Long.MAX_VALUE, out));
+    }
+
+    @Test
+    void testArchivedVersionCannotBeEdited() {
+        transactionArchiver.compact();
+        Long archivedId = archivedTransactionRepository.findAll().get(0).getTransactionId();
+
+        Transaction edit = Transaction.builder().transactionId(archivedId).tradeId(1L).version(1).securityCode("REL").quantity(10)
+                .action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build();
+
+        assertThrows(TransactionEditException.class, () -> positionCalculationService.processTransaction(edit));
+        assertThrows(TransactionEditException.class, () -> positionCalculationService.processBulkTransactions(List.of(edit)));
+    }
+
+    @Test
+    void testNewIdsAreAllocatedAboveArchivedRows() {
+        transactionArchiver.compact();
+
+        positionCalculationService.processTransaction(Transaction.builder().tradeId(3L).version(1).securityCode("INF").quantity(5)
+                .action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build());
+
+        List<Long> ids = positionCalculationService.getAllTransactions().stream().map(Transaction::getTransactionId).toList();
+        assertEquals(ids.size(), ids.stream().distinct().count());
+    }
+
+    private static Map<String, Integer> toMap(List<Position> positions) {
+        return positions.stream().collect(Collectors.toMap(Position::getSecurityCode, Position::getQuantity));
+    }
+}
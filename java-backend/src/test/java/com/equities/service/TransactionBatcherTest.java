@@ -0,0 +1,137 @@
+package com.equities.service;
+
+import com.equities.model.Position;
+import com.equities.model.Transaction;
+import com.equities.repository.TransactionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: batches commit on the dispatcher thread, so each test clears the book itself.
+ */
+@SpringBootTest(properties = {
+        "equities.ingest.batching.enabled=true",
+        "equities.ingest.batching.max-batch-size=16",
+        "equities.ingest.batching.max-wait-ms=50"
+})
+@ActiveProfiles("test")
+class TransactionBatcherTest {
+
+    @Autowired
+    private TransactionBatcher transactionBatcher;
+
+    @Autowired
+    private PositionCalculationService positionCalculationService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        positionCalculationService.clearAllData();
+        executor = Executors.newFixedThreadPool(16);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        positionCalculationService.clearAllData();
+    }
+
+    @Test
+    void testConcurrentPostsAreCoalescedIntoBatches() throws Exception {
+        DistributionSummary batchSize = meterRegistry.get("equities.ingest.batch.size").summary();
+        long batchesBefore = batchSize.count();
+        double committedBefore = batchSize.totalAmount();
+
+        List<Future<List<Position>>> results = submitConcurrently(16, i -> insert(i + 1L, "REL", 1));
+
+        for (Future<List<Position>> result : results) {
+            assertFalse(result.get(10, TimeUnit.SECONDS).isEmpty());
+        }
+        assertEquals(16, positionCalculationService.getAllPositions().get(0).getQuantity());
+        assertEquals(16, transactionRepository.count());
+        assertEquals(16, batchSize.totalAmount() - committedBefore);
+        assertTrue(batchSize.count() - batchesBefore < 16, "expected posts to share commits");
+    }
+
+    @Test
+    void testEachCallerSeesItsOwnWrite() throws Exception {
+        List<Future<List<Position>>> results = submitConcurrently(16, i -> insert(i + 1L, "SEC" + i, 1));
+
+        for (int i = 0; i < results.size(); i++) {
+            String securityCode = "SEC" + i;
+            assertTrue(results.get(i).get(10, TimeUnit.SECONDS).stream().anyMatch(p -> p.getSecurityCode().equals(securityCode)),
+                    () -> "Result is missing " + securityCode);
+        }
+    }
+
+    @Test
+    void testFailingTransactionOnlyFailsItsOwnCaller() throws Exception {
+        positionCalculationService.processTransaction(insert(1L, "REL", 10));
+        Long superseded = transactionRepository.findAll().get(0).getTransactionId();
+        positionCalculationService.processTransaction(Transaction.builder().tradeId(1L).version(2).securityCode("REL").quantity(20)
+                .action(Transaction.TransactionAction.UPDATE).side(Transaction.TransactionSide.BUY).build());
+
+        List<Future<List<Position>>> results = submitConcurrently(8, i -> {
+            if (i == 0) {
+                Transaction edit = insert(1L, "REL", 99);
+                edit.setTransactionId(superseded);
+                return edit;
+            }
+            return insert(i + 1L, "ITC", 5);
+        });
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> results.get(0).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(TransactionEditException.class, failure.getCause());
+        for (Future<List<Position>> result : results.subList(1, results.size())) {
+            assertNotNull(result.get(10, TimeUnit.SECONDS));
+        }
+        List<Position> positions = positionCalculationService.getAllPositions();
+        assertEquals(35, positions.stream().filter(p -> p.getSecurityCode().equals("ITC")).findFirst().orElseThrow().getQuantity());
+        assertEquals(20, positions.stream().filter(p -> p.getSecurityCode().equals("REL")).findFirst().orElseThrow().getQuantity());
+    }
+
+    private List<Future<List<Position>>> submitConcurrently(int count, IntFunction<Transaction> transactions) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Position>>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = transactions.apply(i);
+            results.add(executor.submit(() -> {
+                start.await();
+                return transactionBatcher.process(transaction);
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    private static Transaction insert(long tradeId, String securityCode, int quantity) {
+        return Transaction.builder().tradeId(tradeId).version(1).securityCode(securityCode).quantity(quantity)
+                .action(Transaction.TransactionAction.INSERT).side(Transaction.TransactionSide.BUY).build();
+    }
+}
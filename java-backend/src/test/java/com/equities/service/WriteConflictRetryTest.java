@@ -0,0 +1,100 @@
+package com.equities.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteConflictRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private WriteConflictRetry writeConflictRetry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writeConflictRetry = new WriteConflictRetry(new DirectTransactionTemplate(), meterRegistry, 4, 0, 2);
+    }
+
+    @Test
+    void testConflictIsRetriedAndLaterAttemptsLockRows() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Boolean> locking = new ArrayList<>();
+
+        String result = writeConflictRetry.execute("bulk", () -> {
+            locking.add(writeConflictRetry.isLockingAttempt());
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Position", 1L);
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(List.of(false, false, true), locking);
+        assertFalse(writeConflictRetry.isLockingAttempt());
+        assertEquals(2, count("equities.write.conflicts", "bulk"));
+        assertEquals(2, count("equities.write.retries", "bulk"));
+        assertEquals(0, count("equities.write.retries.exhausted", "bulk"));
+    }
+
+    @Test
+    void testAttemptsAreBounded() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> writeConflictRetry.execute("transaction", () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Position", 1L);
+        }));
+
+        assertEquals(4, attempts.get());
+        assertEquals(4, count("equities.write.conflicts", "transaction"));
+        assertEquals(3, count("equities.write.retries", "transaction"));
+        assertEquals(1, count("equities.write.retries.exhausted", "transaction"));
+    }
+
+    @Test
+    void testOtherFailuresAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(DataIntegrityViolationException.class, () -> writeConflictRetry.execute("transaction", () -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("NULL not allowed for column \"SECURITY_CODE\"");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, count("equities.write.conflicts", "transaction"));
+    }
+
+    @Test
+    void testDuplicateRowCreationIsAConflict() {
+        assertTrue(WriteConflictRetry.isConflict(new DataIntegrityViolationException(
+                "Unique index or primary key violation: \"PUBLIC.UK_POSITIONS_ACCOUNT_SECURITY_INDEX_B\"")));
+        assertFalse(WriteConflictRetry.isConflict(new DataIntegrityViolationException(
+                "Unique index or primary key violation: \"PUBLIC.UK_TRANSACTIONS_TRANSACTION_ID_VERSION\"")));
+        assertTrue(WriteConflictRetry.isConflict(new IllegalStateException(
+                new ObjectOptimisticLockingFailureException("ProcessingState", 1L))));
+    }
+
+    private double count(String name, String operation) {
+        return meterRegistry.get(name).tag("operation", operation).counter().count();
+    }
+
+    /** Runs the callback directly; the retry logic does not depend on a real transaction */
+    private static final class DirectTransactionTemplate extends TransactionTemplate {
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+            return action.doInTransaction(null);
+        }
+    }
+}